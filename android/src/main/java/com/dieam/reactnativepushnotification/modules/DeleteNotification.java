@@ -1,31 +1,47 @@
 package com.dieam.reactnativepushnotification.modules;
 
+import android.app.Application;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
 import android.util.Log;
 
+import static com.dieam.reactnativepushnotification.modules.RNPushNotification.LOG_TAG;
+
 public class DeleteNotification extends BroadcastReceiver {
     @Override
     public void onReceive(Context context, Intent intent) {
         if (intent.getBooleanExtra(RNPushNotificationHelper.DELETE_MESSAGE, false))
         {
-            Bundle bundle = intent.getBundleExtra(RNPushNotificationHelper.NOTIFICATION_BUNDLE);
+            final Bundle bundle = intent.getBundleExtra(RNPushNotificationHelper.NOTIFICATION_BUNDLE);
             if (bundle != null)
             {
-                for (String key : bundle.keySet()) {
-                    Object value = bundle.get(key);
-                    Log.d("[DeleteNotification]", "[bundleItem]:" + String.format("%s %s (%s)", key,
-                            value.toString(), value.getClass().getName()));
-                }
+                RNPushNotificationLog.v("[DeleteNotification] ", bundle);
+
+                final Application application = (Application) context.getApplicationContext();
+                final PendingResult pendingResult = goAsync();
+                // Stored lines may have to be read back first, which must not block the main thread
+                RNPushNotificationScheduler.getInstance(application).execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            // Attaches the message store, the process may have been started for this broadcast
+                            RNPushNotificationHelper.getInstance(application);
 
-                int notificationID = bundle.getInt("notificationID");
-                RNPushNotificationMessageLine.clear(notificationID);
+                            int notificationID = bundle.getInt("notificationID");
+                            RNPushNotificationMessageLine.clear(notificationID);
 
-                String dialog_id = bundle.getString("dialog_id");
-                String message_id = bundle.getString("message_id");
-                RNPushNotificationHelper.deleteMessage(dialog_id, message_id);
+                            String dialog_id = bundle.getString("dialog_id");
+                            String message_id = bundle.getString("message_id");
+                            RNPushNotificationHelper.deleteMessage(dialog_id, message_id);
+                        } catch (Exception e) {
+                            Log.e(LOG_TAG, "Failed to delete the dismissed message", e);
+                        } finally {
+                            RNPushNotificationMessageStore.getInstance(application).flush(pendingResult);
+                        }
+                    }
+                });
             }
         }
     }
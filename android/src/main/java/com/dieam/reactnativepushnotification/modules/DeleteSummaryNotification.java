@@ -1,13 +1,34 @@
 package com.dieam.reactnativepushnotification.modules;
 
+import android.app.Application;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
+import android.util.Log;
+
+import static com.dieam.reactnativepushnotification.modules.RNPushNotification.LOG_TAG;
 
 public class DeleteSummaryNotification extends BroadcastReceiver {
     @Override
     public void onReceive(Context context, Intent intent) {
-        RNPushNotificationHelper.clearMessage();
-        System.out.println("[Delete]");
+        RNPushNotificationLog.d("[DeleteSummaryNotification]");
+
+        final Application application = (Application) context.getApplicationContext();
+        final PendingResult pendingResult = goAsync();
+        // Clearing may read stored dialogs back first, which must not block the main thread
+        RNPushNotificationScheduler.getInstance(application).execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    // Attaches the message store, the process may have been started for this broadcast
+                    RNPushNotificationHelper.getInstance(application);
+                    RNPushNotificationHelper.clearMessage();
+                } catch (Exception e) {
+                    Log.e(LOG_TAG, "Failed to clear the dismissed messages", e);
+                } finally {
+                    RNPushNotificationMessageStore.getInstance(application).flush(pendingResult);
+                }
+            }
+        });
     }
 }
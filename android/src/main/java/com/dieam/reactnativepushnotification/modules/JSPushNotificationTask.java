@@ -1,12 +1,9 @@
 package com.dieam.reactnativepushnotification.modules;
 
 
-import android.app.ActivityManager;
-import android.app.ActivityManager.RunningAppProcessInfo;
 import android.content.Intent;
 import android.os.Bundle;
 import android.os.Handler;
-import android.util.Log;
 
 import androidx.core.app.RemoteInput;
 
@@ -16,10 +13,12 @@ import com.facebook.react.ReactInstanceManager;
 import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactContext;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.jstasks.HeadlessJsTaskConfig;
 
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 
 import javax.annotation.Nullable;
 
@@ -29,6 +28,7 @@ public class JSPushNotificationTask extends HeadlessJsTaskService {
     static final String START_CALL_TASK_KEY = "START_CALL_TASK_KEY";
     static final String END_CALL_TASK_KEY = "END_CALL_TASK_KEY";
     static final String NOTIFY_TASK_KEY = "NOTIFY_TASK_KEY";
+    static final String NOTIFY_BATCH_TASK_KEY = "NOTIFY_BATCH_TASK_KEY";
     static final String MARK_AS_READ_TASK_KEY = "MARK_AS_READ_TASK_KEY";
     static final String REPLY_TASK_KEY = "REPLY_TASK_KEY";
     static final String REPLY_INPUT_KEY = "REPLY_INPUT_KEY";
@@ -59,17 +59,11 @@ public class JSPushNotificationTask extends HeadlessJsTaskService {
         
         if (extras == null) return null;
 
-        for (String key : extras.keySet()) {
-            Object value = extras.get(key);
-            if (value == null) {
-                continue;
-            }
-            Log.d("[getTaskConfig]", "[bundleItem]:" + String.format("%s %s (%s)", key,
-                    value.toString(), value.getClass().getName()));
-        }
+        // Dumping the extras unparcels and formats the whole payload
+        RNPushNotificationLog.v("[getTaskConfig] ", extras);
 
         String taskName = extras.getString(BUNDLE_TASK_NAME_KEY);
-        Log.d(TAG, "taskName: " + taskName);
+        RNPushNotificationLog.d("[getTaskConfig] taskName: ", taskName);
         if (taskName == null) return null;
         if (taskName.equals(REPLY_TASK_KEY)) {
             Bundle remoteInputBundle = RemoteInput.getResultsFromIntent(intent);
@@ -77,7 +71,7 @@ public class JSPushNotificationTask extends HeadlessJsTaskService {
         } else if (taskName.equals(END_CALL_TASK_KEY)) {
             String janusGroupIdKey = extras.getString("janusGroupId");
             boolean result = removeHangUpRunable(janusGroupIdKey);
-            Log.d(TAG, "[resultCancelHangUpTimeout] " + result);
+            RNPushNotificationLog.d("[resultCancelHangUpTimeout] ", result);
         }
         boolean isCallPush = taskName.equals(START_CALL_TASK_KEY) || taskName.equals(END_CALL_TASK_KEY);
         if (this.isApplicationInForeground() && !isCallPush) {
@@ -86,9 +80,27 @@ public class JSPushNotificationTask extends HeadlessJsTaskService {
             }
             return null;
         }
+        if (taskName.equals(NOTIFY_BATCH_TASK_KEY)) {
+            return getBatchTaskConfig(extras);
+        }
         return new HeadlessJsTaskConfig(taskName, Arguments.fromBundle(extras), 0, isCallPush);
     }
 
+    private @Nullable HeadlessJsTaskConfig getBatchTaskConfig(Bundle extras) {
+        ArrayList<Bundle> tasks = extras.getParcelableArrayList(RNPushNotificationTaskBatcher.BUNDLE_TASKS_KEY);
+        if (tasks == null || tasks.isEmpty()) {
+            return null;
+        }
+        WritableArray notifications = Arguments.createArray();
+        for (Bundle task : tasks) {
+            notifications.pushMap(Arguments.fromBundle(task));
+        }
+        WritableMap data = Arguments.createMap();
+        data.putArray(RNPushNotificationTaskBatcher.BUNDLE_TASKS_KEY, notifications);
+        RNPushNotificationLog.d("[getBatchTaskConfig] notify tasks: ", tasks.size());
+        return new HeadlessJsTaskConfig(NOTIFY_BATCH_TASK_KEY, data, 0, false);
+    }
+
     public void sendToJS(Bundle bundle) {
         ReactInstanceManager mReactInstanceManager = ((ReactApplication) getApplication()).getReactNativeHost().getReactInstanceManager();
         ReactContext context = mReactInstanceManager.getCurrentReactContext();
@@ -97,22 +109,6 @@ public class JSPushNotificationTask extends HeadlessJsTaskService {
     }
 
     public boolean isApplicationInForeground() {
-        ActivityManager activityManager = (ActivityManager) this.getSystemService(ACTIVITY_SERVICE);
-        List<RunningAppProcessInfo> processInfos = activityManager.getRunningAppProcesses();
-        if (processInfos != null) {
-            for (RunningAppProcessInfo processInfo : processInfos) {
-                if (processInfo.processName.equals(getApplication().getPackageName())) {
-                    if (processInfo.importance == RunningAppProcessInfo.IMPORTANCE_FOREGROUND) {
-                        for (String d : processInfo.pkgList) {
-                            //TelecomManager telM = (TelecomManager) getApplicationContext().getSystemService(Context.TELECOM_SERVICE);
-                            //boolean isInCall = telM.isInCall();
-                            //return !isInCall;
-                            return true;
-                        }
-                    }
-                }
-            }
-        }
-        return false;
+        return RNPushNotificationForegroundTracker.getInstance(this).isApplicationInForeground();
     }
 }
@@ -23,10 +23,14 @@ import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
 import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableType;
+import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
 import com.google.firebase.messaging.FirebaseMessaging;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 
@@ -44,12 +48,13 @@ public class RNPushNotification extends ReactContextBaseJavaModule implements Ac
         super(reactContext);
 
         reactContext.addActivityEventListener(this);
+        reactContext.addLifecycleEventListener(RNPushNotificationForegroundTracker.getInstance(reactContext));
 
         applicationContext = (Application) reactContext.getApplicationContext();
 
         // The @ReactNative methods use this
-        mRNPushNotificationHelper = new RNPushNotificationHelper(applicationContext);
-        notificationChannelManager = new NotificationChannelManager(reactContext);
+        mRNPushNotificationHelper = RNPushNotificationHelper.getInstance(applicationContext);
+        notificationChannelManager = mRNPushNotificationHelper.notificationChannelManager;
         // This is used to delivery callbacks to JS
         mJsDelivery = new RNPushNotificationJsDelivery(reactContext);
 
@@ -161,8 +166,10 @@ public class RNPushNotification extends ReactContextBaseJavaModule implements Ac
     @ReactMethod
     public void createMessageNotification(ReadableMap details) {
         Bundle bundle = Arguments.toBundle(details);
-        // If notification ID is not provided by the user, generate one at random
-        if (bundle.getString("id") == null) {
+        // If notification ID is not provided by the user, generate one at random.
+        // A message already shown from its push keeps the notification it was rendered into.
+        if (bundle.getString("id") == null || bundle.getBoolean("nativeRendered")) {
+            bundle.remove("id");
             String dialog_id = bundle.getString("dialog_id");
             if (dialog_id == null) {
               return;
@@ -185,9 +192,6 @@ public class RNPushNotification extends ReactContextBaseJavaModule implements Ac
       }
 
       mRNPushNotificationHelper.sendToGroupNotifications(bundle);
-
-      System.out.println("[createGroupNotification][arguments]");
-      System.out.println(bundle);
     }
 
     @ReactMethod
@@ -210,6 +214,42 @@ public class RNPushNotification extends ReactContextBaseJavaModule implements Ac
         mRNPushNotificationHelper.sendNotificationScheduled(bundle);
     }
 
+    @ReactMethod
+    public void scheduleLocalNotifications(ReadableArray notifications, Promise promise) {
+        ArrayList<Bundle> bundles = new ArrayList<>(notifications.size());
+        for (int i = 0; i < notifications.size(); i++) {
+            if (notifications.getType(i) != ReadableType.Map) {
+                bundles.add(null);
+                continue;
+            }
+            Bundle bundle = Arguments.toBundle(notifications.getMap(i));
+            // If notification ID is not provided by the user, generate one at random
+            if (bundle.getString("id") == null) {
+                bundle.putString("id", String.valueOf(mRandomNumberGenerator.nextInt()));
+            }
+            bundles.add(bundle);
+        }
+
+        List<String> errors = mRNPushNotificationHelper.sendNotificationsScheduled(bundles);
+
+        WritableArray results = Arguments.createArray();
+        for (int i = 0; i < bundles.size(); i++) {
+            WritableMap result = Arguments.createMap();
+            Bundle bundle = bundles.get(i);
+            if (bundle != null) {
+                result.putString("id", bundle.getString("id"));
+            } else {
+                result.putNull("id");
+            }
+            result.putBoolean("success", errors.get(i) == null);
+            if (errors.get(i) != null) {
+                result.putString("error", errors.get(i));
+            }
+            results.pushMap(result);
+        }
+        promise.resolve(results);
+    }
+
     @ReactMethod
     public void getInitialNotification(Promise promise) {
         WritableMap params = Arguments.createMap();
@@ -218,8 +258,7 @@ public class RNPushNotification extends ReactContextBaseJavaModule implements Ac
             Bundle bundle = this.getBundleFromIntent(activity.getIntent());
             if (bundle != null) {
                 bundle.putBoolean("foreground", false);
-                String bundleString = mJsDelivery.convertJSON(bundle);
-                params.putString("dataJSON", bundleString);
+                params = mJsDelivery.toEventParams(bundle);
             }
         }
         promise.resolve(params);
@@ -274,6 +313,7 @@ public class RNPushNotification extends ReactContextBaseJavaModule implements Ac
      */
     public void clearLocalNotification(int notificationID) {
         Log.d("clear[int]: ", notificationID + "");
+        RNPushNotificationHelper.cancelPendingMessagingRender(notificationID);
         mRNPushNotificationHelper.clearNotification(notificationID);
         RNPushNotificationMessageLine.clear(notificationID);
     }
@@ -286,6 +326,7 @@ public class RNPushNotification extends ReactContextBaseJavaModule implements Ac
     public void clearLocalNotificationByString(String notificationID) {
         Log.d("clear[String]: ", notificationID + "");
         int notificationIntID = notificationID.hashCode();
+        RNPushNotificationHelper.cancelPendingMessagingRender(notificationIntID);
         mRNPushNotificationHelper.clearNotification(notificationIntID);
         RNPushNotificationMessageLine.clear(notificationIntID);
     }
@@ -307,8 +348,7 @@ public class RNPushNotification extends ReactContextBaseJavaModule implements Ac
         if (isAndroidXOrHigher) {
             mRNPushNotificationHelper.sendToCallNotifications(Arguments.toBundle(notificationBundle), false);
         } else {
-            String packageName = applicationContext.getApplicationContext().getPackageName();
-            Intent focusIntent = applicationContext.getPackageManager().getLaunchIntentForPackage(packageName).cloneFilter();
+            Intent focusIntent = RNPushNotificationLaunchActivity.getLaunchIntent(applicationContext);
             focusIntent.addFlags(Intent.FLAG_ACTIVITY_REORDER_TO_FRONT);
             Activity activity = getCurrentActivity();
             activity.startActivity(focusIntent);
@@ -342,19 +382,41 @@ public class RNPushNotification extends ReactContextBaseJavaModule implements Ac
         if (notificationSettings.hasKey("vibrate")) {
             notificationChannelManager.updateChannelVibration(channelType, notificationSettings.getBoolean("vibrate"));
         }
+        // The channel is recreated with a new id
+        RNPushNotificationTemplates.getInstance(getReactApplicationContext(), notificationChannelManager).invalidate();
         promise.resolve(true);
     }
 
+    /**
+     * Hit/miss/eviction counters of the message ID de-duplication indexes.
+     */
+    @ReactMethod
+    public void getDedupStats(Promise promise) {
+        WritableMap stats = Arguments.createMap();
+        stats.putMap("messages", Arguments.fromBundle(RNPushNotificationMessageLine.receivedMessagesIds.getStats()));
+        stats.putMap("pushes", Arguments.fromBundle(RNPushNotificationIngest.recentPushIds.getStats()));
+        promise.resolve(stats);
+    }
+
+    /**
+     * Sizes and hit/miss counters of the icon, sound and large icon bitmap caches.
+     */
+    @ReactMethod
+    public void getResourceCacheStats(Promise promise) {
+        promise.resolve(Arguments.fromBundle(RNPushNotificationResources.getInstance(getReactApplicationContext()).getStats()));
+    }
+
+    /**
+     * Per warm-up trigger: how often it created the React context, how often that context was
+     * used, and the load time in ms it saved.
+     */
+    @ReactMethod
+    public void getWarmUpStats(Promise promise) {
+        promise.resolve(Arguments.fromBundle(RNPushNotificationWarmUp.getInstance(getReactApplicationContext()).getStats()));
+    }
+
     public Class getMainActivityClass(Context context) {
-        String packageName = context.getPackageName();
-        Intent launchIntent = context.getPackageManager().getLaunchIntentForPackage(packageName);
-        String className = launchIntent.getComponent().getClassName();
-        try {
-            return Class.forName(className);
-        } catch (ClassNotFoundException e) {
-            e.printStackTrace();
-            return null;
-        }
+        return RNPushNotificationLaunchActivity.getActivityClass(context);
     }
 
 }
@@ -0,0 +1,228 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.app.AlarmManager;
+import android.app.Application;
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import static com.dieam.reactnativepushnotification.modules.RNPushNotification.LOG_TAG;
+
+/**
+ * Restores the schedule after a reboot in small chunks on the scheduler worker.
+ * <p>
+ * Every chunk of overdue notifications is removed (or moved to its next occurrence when it
+ * repeats) in the same transaction that records the progress, so a restore killed halfway
+ * resumes where it stopped. Once the budget of a broadcast is spent the restore re-sends itself
+ * and continues in a new one. Missed notifications are collapsed into one catch-up summary.
+ */
+class RNPushNotificationBootRestore {
+    static final String ACTION_RESUME = "com.dieam.reactnativepushnotification.RESUME_BOOT_RESTORE";
+
+    private static final int CHUNK_SIZE = 100;
+    private static final long BROADCAST_BUDGET = 5000;
+    // Resumes a restore whose process was killed before it could re-send itself
+    private static final long WATCHDOG_DELAY = 60 * 1000;
+    private static final int WATCHDOG_REQUEST_CODE = 0x5C4EE;
+    private static final int SUMMARY_LINES = 5;
+
+    private static final String META_CUTOFF = "boot_restore_cutoff";
+    private static final String META_MISSED = "boot_restore_missed";
+    private static final String META_LINES = "boot_restore_lines";
+
+    private static RNPushNotificationBootRestore instance;
+
+    private final Application application;
+    private final RNPushNotificationScheduleStore store;
+    // Cutoff of the restore in progress, -1 if none, null until read from the store
+    private Long pendingCutoff;
+
+    private RNPushNotificationBootRestore(Application application) {
+        this.application = application;
+        this.store = RNPushNotificationScheduleStore.getInstance(application);
+    }
+
+    static synchronized RNPushNotificationBootRestore getInstance(Context context) {
+        if (instance == null) {
+            instance = new RNPushNotificationBootRestore((Application) context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Notifications due at or before this time belong to the restore in progress and are left
+     * out of the regular drain.
+     *
+     * @return the cutoff of the restore in progress, or -1 if there is none
+     */
+    synchronized long getPendingCutoff() {
+        if (pendingCutoff == null) {
+            String storedCutoff = store.getMeta(META_CUTOFF);
+            pendingCutoff = storedCutoff != null ? Long.parseLong(storedCutoff) : -1L;
+        }
+        return pendingCutoff;
+    }
+
+    private synchronized void setPendingCutoff(long cutoff) {
+        pendingCutoff = cutoff;
+    }
+
+    /**
+     * Starts a restore after boot, or continues the one in progress, finishing the broadcast
+     * once this step is done.
+     */
+    void restore(final boolean isBoot, final BroadcastReceiver.PendingResult pendingResult) {
+        RNPushNotificationScheduler.getInstance(application).execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    restoreStep(isBoot);
+                } catch (Exception e) {
+                    Log.e(LOG_TAG, "Problem with boot receiver restoring scheduled notifications", e);
+                } finally {
+                    if (pendingResult != null) {
+                        pendingResult.finish();
+                    }
+                }
+            }
+        });
+    }
+
+    private void restoreStep(boolean isBoot) {
+        long deadline = SystemClock.elapsedRealtime() + BROADCAST_BUDGET;
+
+        String storedCutoff = store.getMeta(META_CUTOFF);
+        long cutoff;
+        if (isBoot || storedCutoff == null) {
+            // Anything due before this boot was missed, including what an unfinished restore left
+            cutoff = System.currentTimeMillis();
+            HashMap<String, String> meta = new HashMap<>();
+            meta.put(META_CUTOFF, String.valueOf(cutoff));
+            store.commit(new ArrayList<String>(), new ArrayList<RNPushNotificationAttributes>(), meta);
+        } else {
+            cutoff = Long.parseLong(storedCutoff);
+        }
+        setPendingCutoff(cutoff);
+
+        armWatchdog();
+        // Notifications due after the cutoff keep firing while the restore is in progress
+        RNPushNotificationScheduler.getInstance(application).rearm();
+
+        int missed = parseInt(store.getMeta(META_MISSED));
+        ArrayList<String> lines = parseLines(store.getMeta(META_LINES));
+
+        while (true) {
+            List<RNPushNotificationAttributes> chunk = store.getDue(cutoff, CHUNK_SIZE);
+            if (chunk.isEmpty()) {
+                break;
+            }
+
+            long now = System.currentTimeMillis();
+            ArrayList<String> removeIds = new ArrayList<>();
+            ArrayList<RNPushNotificationAttributes> rescheduled = new ArrayList<>();
+
+            for (RNPushNotificationAttributes notificationAttributes : chunk) {
+                Bundle bundle = notificationAttributes.toBundle();
+                missed++;
+                if (lines.size() < SUMMARY_LINES) {
+                    String line = bundle.getString("title") != null ? bundle.getString("title") : bundle.getString("message");
+                    if (line != null) {
+                        lines.add(line);
+                    }
+                }
+
+                long repeatInterval = RNPushNotificationHelper.getRepeatInterval(bundle);
+                if (repeatInterval > 0) {
+                    // Skip the occurrences that were missed, the summary stands in for them
+                    long fireDate = (long) notificationAttributes.getFireDate();
+                    long skipped = (now - fireDate) / repeatInterval + 1;
+                    bundle.putDouble("fireDate", fireDate + skipped * repeatInterval);
+                    rescheduled.add(new RNPushNotificationAttributes(bundle));
+                } else {
+                    removeIds.add(notificationAttributes.getId());
+                }
+            }
+
+            HashMap<String, String> meta = new HashMap<>();
+            meta.put(META_MISSED, String.valueOf(missed));
+            meta.put(META_LINES, new JSONArray(lines).toString());
+            if (!store.commit(removeIds, rescheduled, meta)) {
+                // Left to the watchdog, which retries from the last committed chunk
+                return;
+            }
+
+            Log.i(LOG_TAG, "RNPushNotificationBootEventReceiver: restored " + chunk.size() + " overdue notifications");
+
+            if (SystemClock.elapsedRealtime() > deadline) {
+                Intent resume = new Intent(application, RNPushNotificationBootEventReceiver.class);
+                resume.setAction(ACTION_RESUME);
+                application.sendBroadcast(resume);
+                return;
+            }
+        }
+
+        if (missed > 0) {
+            RNPushNotificationHelper.getInstance(application).sendCatchUpSummary(missed, lines);
+        }
+
+        HashMap<String, String> meta = new HashMap<>();
+        meta.put(META_CUTOFF, null);
+        meta.put(META_MISSED, null);
+        meta.put(META_LINES, null);
+        store.commit(new ArrayList<String>(), new ArrayList<RNPushNotificationAttributes>(), meta);
+        setPendingCutoff(-1);
+
+        getAlarmManager().cancel(toWatchdogIntent());
+        RNPushNotificationScheduler.getInstance(application).rearm();
+    }
+
+    private void armWatchdog() {
+        getAlarmManager().set(AlarmManager.ELAPSED_REALTIME_WAKEUP,
+                SystemClock.elapsedRealtime() + WATCHDOG_DELAY, toWatchdogIntent());
+    }
+
+    private PendingIntent toWatchdogIntent() {
+        Intent intent = new Intent(application, RNPushNotificationBootEventReceiver.class);
+        intent.setAction(ACTION_RESUME);
+        return PendingIntent.getBroadcast(application, WATCHDOG_REQUEST_CODE, intent, PendingIntent.FLAG_UPDATE_CURRENT);
+    }
+
+    private AlarmManager getAlarmManager() {
+        return (AlarmManager) application.getSystemService(Context.ALARM_SERVICE);
+    }
+
+    private static int parseInt(String value) {
+        try {
+            return value != null ? Integer.parseInt(value) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static ArrayList<String> parseLines(String value) {
+        ArrayList<String> lines = new ArrayList<>();
+        if (value == null) {
+            return lines;
+        }
+        try {
+            JSONArray array = new JSONArray(value);
+            for (int i = 0; i < array.length(); i++) {
+                lines.add(array.getString(i));
+            }
+        } catch (JSONException e) {
+            Log.w(LOG_TAG, "Problem reading the boot restore progress", e);
+        }
+        return lines;
+    }
+}
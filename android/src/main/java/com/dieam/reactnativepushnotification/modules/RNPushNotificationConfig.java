@@ -11,6 +11,23 @@ class RNPushNotificationConfig {
     private static final String KEY_CHANNEL_NAME = "com.dieam.reactnativepushnotification.notification_channel_name";
     private static final String KEY_CHANNEL_DESCRIPTION = "com.dieam.reactnativepushnotification.notification_channel_description";
     private static final String KEY_NOTIFICATION_COLOR = "com.dieam.reactnativepushnotification.notification_color";
+    private static final String KEY_MESSAGING_RENDER_WINDOW = "com.dieam.reactnativepushnotification.messaging_render_window";
+    private static final String KEY_MESSAGING_RENDER_MAX_DELAY = "com.dieam.reactnativepushnotification.messaging_render_max_delay";
+    private static final String KEY_LEGACY_DATA_JSON = "com.dieam.reactnativepushnotification.legacy_data_json";
+    private static final String KEY_EVENT_BATCH_WINDOW = "com.dieam.reactnativepushnotification.event_batch_window";
+    private static final String KEY_EVENT_BATCH_MAX_SIZE = "com.dieam.reactnativepushnotification.event_batch_max_size";
+    private static final String KEY_NOTIFY_TASK_BATCH_SIZE = "com.dieam.reactnativepushnotification.notify_task_batch_size";
+    private static final String KEY_NOTIFY_TASK_BATCH_TIMEOUT = "com.dieam.reactnativepushnotification.notify_task_batch_timeout";
+    private static final String KEY_WARM_UP_TRIGGERS = "com.dieam.reactnativepushnotification.warm_up_triggers";
+    private static final String KEY_WARM_UP_ALARM_LEAD = "com.dieam.reactnativepushnotification.warm_up_alarm_lead";
+    private static final String KEY_NATIVE_MESSAGE_RENDERING = "com.dieam.reactnativepushnotification.native_message_rendering";
+    private static final String KEY_LOG_LEVEL = "com.dieam.reactnativepushnotification.log_level";
+    private static final String KEY_MAX_MESSAGES_PER_DIALOG = "com.dieam.reactnativepushnotification.max_messages_per_dialog";
+    private static final String KEY_MESSAGING_HISTORY_WINDOW = "com.dieam.reactnativepushnotification.messaging_history_window";
+    private static final String KEY_GROUP_SUMMARY_WINDOW = "com.dieam.reactnativepushnotification.group_summary_window";
+    private static final String KEY_GROUP_SUMMARY_MAX_DELAY = "com.dieam.reactnativepushnotification.group_summary_max_delay";
+    private static final String KEY_LAUNCH_ACTIVITY = "com.dieam.reactnativepushnotification.launch_activity";
+    private static final String KEY_LARGE_ICON_CACHE_SIZE = "com.dieam.reactnativepushnotification.large_icon_cache_size";
 
     private static Bundle metadata;
     private Context context;
@@ -57,4 +74,156 @@ class RNPushNotificationConfig {
         // Default
         return -1;
     }
+
+    /**
+     * Quiet period in ms that a messaging notification waits for further messages before it is rendered.
+     * 0 renders every message immediately.
+     */
+    public int getMessagingRenderWindow() {
+        return getInt(KEY_MESSAGING_RENDER_WINDOW, 250);
+    }
+
+    /**
+     * Upper bound in ms a messaging notification render can be postponed by a continuous burst.
+     */
+    public int getMessagingRenderMaxDelay() {
+        return getInt(KEY_MESSAGING_RENDER_MAX_DELAY, 1000);
+    }
+
+    /**
+     * Quiet period in ms the group summary waits for further messages before it is re-posted.
+     * 0 re-posts it with every message.
+     */
+    public int getGroupSummaryWindow() {
+        return getInt(KEY_GROUP_SUMMARY_WINDOW, 300);
+    }
+
+    /**
+     * Upper bound in ms a group summary re-post can be postponed by a continuous burst.
+     */
+    public int getGroupSummaryMaxDelay() {
+        return getInt(KEY_GROUP_SUMMARY_MAX_DELAY, 1000);
+    }
+
+    /**
+     * Number of most recent lines a messaging notification shows and retains, older ones are
+     * summarised as "+K more".
+     */
+    public int getMessagingHistoryWindow() {
+        return getInt(KEY_MESSAGING_HISTORY_WINDOW, 25);
+    }
+
+    /**
+     * Maximum size in bytes of the decoded large icons kept in memory.
+     */
+    public int getLargeIconCacheSize() {
+        return getInt(KEY_LARGE_ICON_CACHE_SIZE, 2 * 1024 * 1024);
+    }
+
+    /**
+     * Class name of the Activity notifications open, a leading dot is relative to the package.
+     * Null to use the package's launch activity.
+     */
+    public String getLaunchActivity() {
+        if (metadata != null) {
+            return metadata.getString(KEY_LAUNCH_ACTIVITY);
+        }
+        // Default
+        return null;
+    }
+
+    /**
+     * Whether events are sent to JS as a {@code dataJSON} string rather than as a map.
+     */
+    public boolean isLegacyDataJson() {
+        if (metadata != null) {
+            return metadata.getBoolean(KEY_LEGACY_DATA_JSON, false);
+        }
+        // Default
+        return false;
+    }
+
+    /**
+     * Whether chat pushes received in the background are shown natively before JS is notified.
+     */
+    public boolean isNativeMessageRendering() {
+        if (metadata != null) {
+            return metadata.getBoolean(KEY_NATIVE_MESSAGE_RENDERING, false);
+        }
+        // Default
+        return false;
+    }
+
+    /**
+     * Window in ms over which received notifications are batched into one JS event.
+     * 0 batches over one frame, a negative value (the default) sends every notification on its own.
+     */
+    public int getEventBatchWindow() {
+        return getInt(KEY_EVENT_BATCH_WINDOW, -1);
+    }
+
+    /**
+     * Number of notifications that flushes a batch before its window has elapsed.
+     */
+    public int getEventBatchMaxSize() {
+        return getInt(KEY_EVENT_BATCH_MAX_SIZE, 50);
+    }
+
+    /**
+     * Number of NOTIFY headless tasks started together as one batch task.
+     * 0 or 1 (the default) starts every task on its own.
+     */
+    public int getNotifyTaskBatchSize() {
+        return getInt(KEY_NOTIFY_TASK_BATCH_SIZE, 0);
+    }
+
+    /**
+     * Time in ms after its first task that an incomplete batch of NOTIFY tasks is started,
+     * capped at 1000 to stay within the background service start allowance after a push.
+     */
+    public int getNotifyTaskBatchTimeout() {
+        return getInt(KEY_NOTIFY_TASK_BATCH_TIMEOUT, 300);
+    }
+
+    /**
+     * Comma separated events that create the React context ahead of time: boot, alarm and call.
+     * Null to only create it when it is needed.
+     */
+    public String getWarmUpTriggers() {
+        if (metadata != null) {
+            return metadata.getString(KEY_WARM_UP_TRIGGERS);
+        }
+        // Default
+        return null;
+    }
+
+    /**
+     * Minutes before a scheduled notification that the alarm warm-up creates the React context.
+     */
+    public int getWarmUpAlarmLead() {
+        return getInt(KEY_WARM_UP_ALARM_LEAD, 5);
+    }
+
+    /**
+     * Number of unread messages kept per dialog for the group summary, older ones are dropped
+     * and no longer counted.
+     */
+    public int getMaxMessagesPerDialog() {
+        return getInt(KEY_MAX_MESSAGES_PER_DIALOG, 100);
+    }
+
+    /**
+     * Lowest android.util.Log priority that is logged, e.g. 3 for debug.
+     */
+    public int getLogLevel() {
+        return getInt(KEY_LOG_LEVEL, Log.INFO);
+    }
+
+    private int getInt(String key, int fallback) {
+        if (metadata != null && metadata.containsKey(key)) {
+            return metadata.getInt(key, fallback);
+        }
+        // Default
+        return fallback;
+    }
 }
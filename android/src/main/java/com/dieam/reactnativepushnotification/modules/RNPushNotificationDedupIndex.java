@@ -0,0 +1,260 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.os.Bundle;
+import android.os.SystemClock;
+
+import java.util.Arrays;
+
+/**
+ * Bounded set of recently seen IDs with a size cap and time based expiry.
+ * <p>
+ * IDs are stored as 64-bit hashes in a fixed ring ordered by insertion time, with an
+ * open-addressed table on top for O(1) lookups. The oldest entry is evicted when the ring is
+ * full and entries older than the TTL are dropped lazily, so the footprint is fixed at
+ * construction no matter how long the process lives.
+ */
+class RNPushNotificationDedupIndex {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * Time source of the expiry, replaced in tests.
+     */
+    interface Clock {
+        long now();
+    }
+
+    private static final Clock ELAPSED_REALTIME = new Clock() {
+        @Override
+        public long now() {
+            return SystemClock.elapsedRealtime();
+        }
+    };
+
+    private final int capacity;
+    private final long ttl;
+    private Clock clock;
+
+    // Ring of hashes in insertion order, addedAt == 0 marks a removed entry
+    private final long[] hashes;
+    private final long[] addedAt;
+    private int head = 0;
+    private int tail = 0;
+    private int ringSize = 0;
+    private int liveCount = 0;
+
+    // Open addressing with linear probing, holds ring slot + 1, 0 is empty
+    private final int[] table;
+    private final int tableMask;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private long expirations = 0;
+
+    RNPushNotificationDedupIndex(int capacity, long ttl) {
+        this(capacity, ttl, ELAPSED_REALTIME);
+    }
+
+    RNPushNotificationDedupIndex(int capacity, long ttl, Clock clock) {
+        this.capacity = capacity;
+        this.ttl = ttl;
+        this.clock = clock;
+        this.hashes = new long[capacity];
+        this.addedAt = new long[capacity];
+
+        int tableSize = Integer.highestOneBit(Math.max(capacity * 2 - 1, 1)) << 1;
+        this.table = new int[tableSize];
+        this.tableMask = tableSize - 1;
+    }
+
+    /**
+     * The de-duplication decision, the only call counted as a hit or a miss.
+     *
+     * @return true if the ID was not seen before and has been recorded, false if it is a duplicate
+     */
+    synchronized boolean add(String id) {
+        boolean added = insert(id);
+        if (added) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return added;
+    }
+
+    /**
+     * Records an ID without counting it, e.g. when reading back persisted IDs.
+     */
+    synchronized void restore(String id) {
+        insert(id);
+    }
+
+    private boolean insert(String id) {
+        long now = clock.now();
+        expire(now);
+
+        long hash = hash(id);
+        if (find(hash) != -1) {
+            return false;
+        }
+
+        if (ringSize == capacity) {
+            if (addedAt[tail] != 0) {
+                removeFromTable(hashes[tail]);
+                evictions++;
+            }
+            advanceTail();
+        }
+
+        hashes[head] = hash;
+        addedAt[head] = now;
+        insertIntoTable(hash, head);
+        head = (head + 1) % capacity;
+        ringSize++;
+        liveCount++;
+        return true;
+    }
+
+    /**
+     * Looks an ID up without counting it, as it is usually followed by {@link #add(String)}.
+     */
+    synchronized boolean contains(String id) {
+        expire(clock.now());
+        return find(hash(id)) != -1;
+    }
+
+    synchronized void remove(String id) {
+        long hash = hash(id);
+        int tableIndex = find(hash);
+        if (tableIndex == -1) {
+            return;
+        }
+        addedAt[table[tableIndex] - 1] = 0;
+        removeAt(tableIndex);
+    }
+
+    synchronized void clear() {
+        Arrays.fill(table, 0);
+        Arrays.fill(addedAt, 0);
+        head = 0;
+        tail = 0;
+        ringSize = 0;
+        liveCount = 0;
+    }
+
+    synchronized int size() {
+        expire(clock.now());
+        return liveCount;
+    }
+
+    // Visible for tests, to run the shared indexes without android.os.SystemClock
+    synchronized void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    synchronized long getHits() {
+        return hits;
+    }
+
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    synchronized Bundle getStats() {
+        expire(clock.now());
+        Bundle stats = new Bundle();
+        stats.putInt("size", liveCount);
+        stats.putInt("capacity", capacity);
+        stats.putDouble("hits", hits);
+        stats.putDouble("misses", misses);
+        stats.putDouble("evictions", evictions);
+        stats.putDouble("expirations", expirations);
+        return stats;
+    }
+
+    private void expire(long now) {
+        while (ringSize > 0 && (addedAt[tail] == 0 || now - addedAt[tail] > ttl)) {
+            if (addedAt[tail] != 0) {
+                removeFromTable(hashes[tail]);
+                expirations++;
+            }
+            advanceTail();
+        }
+    }
+
+    private void advanceTail() {
+        if (addedAt[tail] != 0) {
+            addedAt[tail] = 0;
+        }
+        tail = (tail + 1) % capacity;
+        ringSize--;
+    }
+
+    private int find(long hash) {
+        int index = home(hash);
+        while (table[index] != 0) {
+            if (hashes[table[index] - 1] == hash) {
+                return index;
+            }
+            index = (index + 1) & tableMask;
+        }
+        return -1;
+    }
+
+    private void insertIntoTable(long hash, int slot) {
+        int index = home(hash);
+        while (table[index] != 0) {
+            index = (index + 1) & tableMask;
+        }
+        table[index] = slot + 1;
+    }
+
+    private void removeFromTable(long hash) {
+        int index = find(hash);
+        if (index != -1) {
+            removeAt(index);
+        }
+    }
+
+    // Backward shift deletion keeps probe chains intact without tombstones
+    private void removeAt(int hole) {
+        liveCount--;
+        int index = hole;
+        while (true) {
+            table[hole] = 0;
+            while (true) {
+                index = (index + 1) & tableMask;
+                if (table[index] == 0) {
+                    return;
+                }
+                int home = home(hashes[table[index] - 1]);
+                boolean stays = hole <= index ? (hole < home && home <= index) : (hole < home || home <= index);
+                if (!stays) {
+                    break;
+                }
+            }
+            table[hole] = table[index];
+            hole = index;
+        }
+    }
+
+    // Visible for tests, to build colliding IDs
+    int homeOf(String id) {
+        return home(hash(id));
+    }
+
+    private int home(long hash) {
+        long mixed = (hash ^ (hash >>> 32)) * 0x9E3779B97F4A7C15L;
+        return (int) (mixed >>> 32) & tableMask;
+    }
+
+    static long hash(String id) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < id.length(); i++) {
+            hash ^= id.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+}
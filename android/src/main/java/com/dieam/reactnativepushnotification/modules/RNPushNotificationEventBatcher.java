@@ -0,0 +1,91 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+import java.util.ArrayList;
+
+/**
+ * Collects notification events and emits them to JS as one array event.
+ * <p>
+ * The first event of a batch opens a window; everything received until it closes, or until the
+ * batch is full, is sent in arrival order in a single {@link #BATCH_EVENT} emit, so a burst
+ * costs one bridge call and one JS handler run instead of one per message.
+ */
+class RNPushNotificationEventBatcher {
+    static final String BATCH_EVENT = "remoteNotificationsReceivedBatch";
+
+    // Roughly one frame
+    private static final long FRAME_WINDOW = 16;
+
+    private static RNPushNotificationEventBatcher instance;
+
+    private final long window;
+    private final int maxSize;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable flushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    private ArrayList<WritableMap> pending = new ArrayList<>();
+    private ReactApplicationContext reactContext;
+
+    private RNPushNotificationEventBatcher(long window, int maxSize) {
+        this.window = window > 0 ? window : FRAME_WINDOW;
+        this.maxSize = Math.max(1, maxSize);
+    }
+
+    /**
+     * @return the shared batcher, or null when batching is not enabled in the manifest
+     */
+    static synchronized RNPushNotificationEventBatcher getInstance(ReactApplicationContext context) {
+        if (instance == null) {
+            RNPushNotificationConfig config = new RNPushNotificationConfig(context);
+            if (config.getEventBatchWindow() < 0) {
+                return null;
+            }
+            instance = new RNPushNotificationEventBatcher(config.getEventBatchWindow(), config.getEventBatchMaxSize());
+        }
+        return instance;
+    }
+
+    synchronized void add(ReactApplicationContext context, WritableMap params) {
+        reactContext = context;
+        pending.add(params);
+        if (pending.size() >= maxSize) {
+            handler.removeCallbacks(flushRunnable);
+            flush();
+        } else if (pending.size() == 1) {
+            handler.postDelayed(flushRunnable, window);
+        }
+    }
+
+    // Emits under the lock so two flushes can never reorder events
+    synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        ArrayList<WritableMap> batch = pending;
+        pending = new ArrayList<>();
+
+        if (reactContext == null || !reactContext.hasActiveCatalystInstance()) {
+            return;
+        }
+        WritableArray events = Arguments.createArray();
+        for (WritableMap event : batch) {
+            events.pushMap(event);
+        }
+        reactContext
+                .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                .emit(BATCH_EVENT, events);
+    }
+}
@@ -0,0 +1,113 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.app.Activity;
+import android.app.ActivityManager;
+import android.app.ActivityManager.RunningAppProcessInfo;
+import android.app.Application;
+import android.content.Context;
+import android.os.Bundle;
+
+import com.facebook.react.bridge.LifecycleEventListener;
+
+import java.util.List;
+
+/**
+ * Tracks whether the app is in the foreground from lifecycle events, so the question can be
+ * answered without an IPC.
+ * <p>
+ * Started activities are counted through the activity lifecycle callbacks, and the React host
+ * lifecycle covers the module's own activity. As the callbacks may be registered after an
+ * activity has already started, the state is seeded once from the running processes.
+ */
+class RNPushNotificationForegroundTracker implements Application.ActivityLifecycleCallbacks, LifecycleEventListener {
+    private static RNPushNotificationForegroundTracker instance;
+
+    private int startedActivities;
+    private boolean isHostResumed;
+    // An activity stopped for a configuration change comes straight back, it is not counted out
+    private boolean isChangingConfigurations;
+
+    private RNPushNotificationForegroundTracker(Application application) {
+        startedActivities = isForegroundProcess(application) ? 1 : 0;
+        application.registerActivityLifecycleCallbacks(this);
+    }
+
+    static synchronized RNPushNotificationForegroundTracker getInstance(Context context) {
+        if (instance == null) {
+            instance = new RNPushNotificationForegroundTracker((Application) context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    synchronized boolean isApplicationInForeground() {
+        return startedActivities > 0 || isHostResumed;
+    }
+
+    @Override
+    public synchronized void onActivityStarted(Activity activity) {
+        if (isChangingConfigurations) {
+            isChangingConfigurations = false;
+            return;
+        }
+        startedActivities++;
+    }
+
+    @Override
+    public synchronized void onActivityStopped(Activity activity) {
+        if (activity.isChangingConfigurations()) {
+            isChangingConfigurations = true;
+            return;
+        }
+        startedActivities = Math.max(0, startedActivities - 1);
+    }
+
+    @Override
+    public synchronized void onHostResume() {
+        isHostResumed = true;
+    }
+
+    @Override
+    public synchronized void onHostPause() {
+        isHostResumed = false;
+    }
+
+    @Override
+    public synchronized void onHostDestroy() {
+        isHostResumed = false;
+    }
+
+    @Override
+    public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+    }
+
+    @Override
+    public void onActivityResumed(Activity activity) {
+    }
+
+    @Override
+    public void onActivityPaused(Activity activity) {
+    }
+
+    @Override
+    public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+    }
+
+    @Override
+    public void onActivityDestroyed(Activity activity) {
+    }
+
+    private static boolean isForegroundProcess(Application application) {
+        ActivityManager activityManager = (ActivityManager) application.getSystemService(Context.ACTIVITY_SERVICE);
+        List<RunningAppProcessInfo> processInfos = activityManager.getRunningAppProcesses();
+        if (processInfos != null) {
+            for (RunningAppProcessInfo processInfo : processInfos) {
+                if (processInfo.processName.equals(application.getPackageName())) {
+                    if (processInfo.importance == RunningAppProcessInfo.IMPORTANCE_FOREGROUND) {
+                        return processInfo.pkgList != null && processInfo.pkgList.length > 0;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+}
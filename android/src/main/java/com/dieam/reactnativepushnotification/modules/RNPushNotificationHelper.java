@@ -9,17 +9,15 @@ import android.app.NotificationManager;
 import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.content.pm.ApplicationInfo;
-import android.content.res.Resources;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.Color;
 import android.media.AudioAttributes;
 import android.media.RingtoneManager;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Parcel;
 import android.util.Log;
 
 import androidx.annotation.RequiresApi;
@@ -33,18 +31,20 @@ import org.json.JSONException;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
 
 import static com.dieam.reactnativepushnotification.modules.RNPushNotification.LOG_TAG;
-import static com.dieam.reactnativepushnotification.modules.RNPushNotificationAttributes.fromJson;
 
 public class RNPushNotificationHelper {
     public static final String PREFERENCES_KEY = "rn_push_notification";
-    private static final long DEFAULT_VIBRATION = 300L;
     private static final String NOTIFICATION_CHANNEL_ID = "rn-push-notification-channel-id";
     private static final String NOTIFICATION_CHANNEL_CALL_ID = "rn-push-notification-channel-call-id";
     private static final String NOTIFICATION_GROUP_ID = "rn-push-notification-group-id";
     private static final int NOTIFICATION_WITH_GROUP_ID = 6784;
+    private static final int CATCH_UP_NOTIFICATION_ID = 6785;
+    // A quarter of the 1MB binder transaction buffer, which is shared by the whole process
+    private static final int MAX_NOTIFICATION_PARCEL_SIZE = 256 * 1024;
     public static final String CLEAR_MESSAGE = "CLEAR_MESSAGE";
     public static final String NOTIFICATION_BUNDLE = "notification";
     public static final String DELETE_MESSAGE = "DELETE_MESSAGE";
@@ -53,26 +53,54 @@ public class RNPushNotificationHelper {
     private static final long ONE_HOUR = 60 * ONE_MINUTE;
     private static final long ONE_DAY = 24 * ONE_HOUR;
     private static final RNPushNotificationsMessages hashMapDialogsToMessages = new RNPushNotificationsMessages();
+    private static RNPushNotificationRenderCoalescer messagingRenderCoalescer;
+    private static RNPushNotificationRenderCoalescer groupSummaryCoalescer;
+    // What the group summary currently shows, null if it is not posted
+    private static RNPushNotificationsMessages.Summary postedGroupSummary;
+    private static RNPushNotificationHelper instance;
 
 
     private Context context;
     private RNPushNotificationConfig config;
-    private final SharedPreferences scheduledNotificationsPersistence;
+    private final RNPushNotificationScheduleStore scheduledNotificationsStore;
+    private final NotificationManager notificationManager;
+    private final AlarmManager alarmManager;
 
     private int blueColor = Color.argb(255, 67, 163, 204);
 
     public NotificationChannelManager notificationChannelManager;
 
+    /**
+     * Returns the process-wide helper, so alarms, pushes and the React module share one config,
+     * channel manager and set of stores instead of building them on every event.
+     */
+    public static synchronized RNPushNotificationHelper getInstance(Application context) {
+        if (instance == null) {
+            instance = new RNPushNotificationHelper(context);
+        }
+        return instance;
+    }
+
     public RNPushNotificationHelper(Application context) {
         this.context = context;
         this.config = new RNPushNotificationConfig(context);
-        this.scheduledNotificationsPersistence = context.getSharedPreferences(RNPushNotificationHelper.PREFERENCES_KEY, Context.MODE_PRIVATE);
+        this.scheduledNotificationsStore = RNPushNotificationScheduleStore.getInstance(context);
+        this.notificationManager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        this.alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
         notificationChannelManager = new NotificationChannelManager(context);
+        RNPushNotificationLog.init(context);
+
+        RNPushNotificationMessageStore messageStore = RNPushNotificationMessageStore.getInstance(context);
+        RNPushNotificationMessageLine.setMaxLines(config.getMessagingHistoryWindow());
+        RNPushNotificationMessageLine.attachStore(messageStore);
+        hashMapDialogsToMessages.setMaxMessagesPerDialog(config.getMaxMessagesPerDialog());
+        hashMapDialogsToMessages.attachStore(messageStore);
     }
 
     public static void clearMessage()
     {
         hashMapDialogsToMessages.clear();
+        forgetGroupSummary();
 
     }
 
@@ -82,85 +110,124 @@ public class RNPushNotificationHelper {
     }
 
     public Class getMainActivityClass() {
-        String packageName = context.getPackageName();
-        Intent launchIntent = context.getPackageManager().getLaunchIntentForPackage(packageName);
-        String className = launchIntent.getComponent().getClassName();
-        try {
-            return Class.forName(className);
-        } catch (ClassNotFoundException e) {
-            e.printStackTrace();
-            return null;
-        }
+        return RNPushNotificationLaunchActivity.getActivityClass(context);
     }
 
     private AlarmManager getAlarmManager() {
-        return (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        return alarmManager;
     }
 
-    private PendingIntent toScheduleNotificationIntent(Bundle bundle) {
-        int notificationID = Integer.parseInt(bundle.getString("id"));
+    /**
+     * @return the alarm an earlier version registered for this notification, or null if there is none
+     */
+    private PendingIntent findLegacyScheduleNotificationIntent(String notificationIDString) {
+        int notificationID = Integer.parseInt(notificationIDString);
 
         Intent notificationIntent = new Intent(context, RNPushNotificationPublisher.class);
-        notificationIntent.putExtra(RNPushNotificationPublisher.NOTIFICATION_ID, notificationID);
-        notificationIntent.putExtras(bundle);
-
-        return PendingIntent.getBroadcast(context, notificationID, notificationIntent, PendingIntent.FLAG_UPDATE_CURRENT);
+        return PendingIntent.getBroadcast(context, notificationID, notificationIntent, PendingIntent.FLAG_NO_CREATE);
     }
 
     public void sendNotificationScheduled(Bundle bundle) {
-        Class intentClass = getMainActivityClass();
-        if (intentClass == null) {
-            Log.e(LOG_TAG, "No activity class found for the scheduled notification");
+        String error = validateScheduledNotification(bundle);
+        if (error != null) {
+            Log.e(LOG_TAG, error);
             return;
         }
 
-        if (bundle.getString("message") == null) {
-            Log.e(LOG_TAG, "No message specified for the scheduled notification");
-            return;
+        RNPushNotificationAttributes notificationAttributes = new RNPushNotificationAttributes(bundle);
+        String id = notificationAttributes.getId();
+
+        RNPushNotificationLog.d("Storing push notification with id ", id);
+
+        boolean isSaved = scheduledNotificationsStore.put(notificationAttributes);
+        if (!isSaved) {
+            Log.e(LOG_TAG, "Failed to save " + id);
         }
 
-        if (bundle.getString("id") == null) {
-            Log.e(LOG_TAG, "No notification ID specified for the scheduled notification");
-            return;
+        sendNotificationScheduledCore(bundle);
+    }
+
+    /**
+     * Validates, persists and registers a batch of scheduled notifications. All valid
+     * notifications are written to the store in a single transaction.
+     *
+     * @return one entry per bundle: null when it was scheduled, otherwise the reason it was not
+     */
+    public List<String> sendNotificationsScheduled(List<Bundle> bundles) {
+        ArrayList<String> errors = new ArrayList<>(bundles.size());
+        ArrayList<RNPushNotificationAttributes> validAttributes = new ArrayList<>(bundles.size());
+
+        for (Bundle bundle : bundles) {
+            String error = bundle == null ? "Scheduled notification must be an object" : validateScheduledNotification(bundle);
+            errors.add(error);
+            if (error == null) {
+                validAttributes.add(new RNPushNotificationAttributes(bundle));
+            }
         }
 
-        double fireDate = bundle.getDouble("fireDate");
-        if (fireDate == 0) {
-            Log.e(LOG_TAG, "No date specified for the scheduled notification");
-            return;
+        RNPushNotificationLog.d("Storing scheduled notifications, valid and total: ", validAttributes.size(), bundles.size());
+
+        if (!scheduledNotificationsStore.putAll(validAttributes)) {
+            for (int i = 0; i < errors.size(); i++) {
+                if (errors.get(i) == null) {
+                    errors.set(i, "Failed to save the scheduled notification");
+                }
+            }
+            return errors;
         }
 
-        RNPushNotificationAttributes notificationAttributes = new RNPushNotificationAttributes(bundle);
-        String id = notificationAttributes.getId();
+        // All of them are in the store, so a single re-arm covers the whole batch
+        getScheduler().rearm();
+        return errors;
+    }
+
+    private String validateScheduledNotification(Bundle bundle) {
+        Class intentClass = getMainActivityClass();
+        if (intentClass == null) {
+            return "No activity class found for the scheduled notification";
+        }
 
-        Log.d(LOG_TAG, "Storing push notification with id " + id);
+        if (bundle.getString("message") == null) {
+            return "No message specified for the scheduled notification";
+        }
 
-        SharedPreferences.Editor editor = scheduledNotificationsPersistence.edit();
-        editor.putString(id, notificationAttributes.toJson().toString());
-        commit(editor);
+        String id = bundle.getString("id");
+        if (id == null) {
+            return "No notification ID specified for the scheduled notification";
+        }
 
-        boolean isSaved = scheduledNotificationsPersistence.contains(id);
-        if (!isSaved) {
-            Log.e(LOG_TAG, "Failed to save " + id);
+        try {
+            Integer.parseInt(id);
+        } catch (NumberFormatException e) {
+            return "Notification ID must be an integer for the scheduled notification";
         }
 
-        sendNotificationScheduledCore(bundle);
+        double fireDate = bundle.getDouble("fireDate");
+        if (fireDate == 0) {
+            return "No date specified for the scheduled notification";
+        }
+        return null;
     }
 
+    /**
+     * Makes sure the scheduler alarm covers a notification that is already in the schedule store.
+     * Only the earliest stored notification holds an alarm.
+     */
     public void sendNotificationScheduledCore(Bundle bundle) {
-        long fireDate = (long) bundle.getDouble("fireDate");
+        RNPushNotificationLog.d("Setting a notification, id and time: ", bundle.getString("id"), (long) bundle.getDouble("fireDate"));
+        getScheduler().rearm();
+    }
 
-        // If the fireDate is in past, this will fire immediately and show the
-        // notification to the user
-        PendingIntent pendingIntent = toScheduleNotificationIntent(bundle);
+    private RNPushNotificationTemplates getTemplates() {
+        return RNPushNotificationTemplates.getInstance(context, notificationChannelManager);
+    }
 
-        Log.d(LOG_TAG, String.format("Setting a notification with id %s at time %s",
-                bundle.getString("id"), Long.toString(fireDate)));
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
-            getAlarmManager().setExact(AlarmManager.RTC_WAKEUP, fireDate, pendingIntent);
-        } else {
-            getAlarmManager().set(AlarmManager.RTC_WAKEUP, fireDate, pendingIntent);
-        }
+    private RNPushNotificationResources getResources() {
+        return RNPushNotificationResources.getInstance(context);
+    }
+
+    private RNPushNotificationScheduler getScheduler() {
+        return RNPushNotificationScheduler.getInstance(context);
     }
 
     private void setTimeoutCancelNotification(final Context appContext, final Bundle callHangUpTimeoutIntentBundle, long delay) {
@@ -193,35 +260,15 @@ public class RNPushNotificationHelper {
 
             String title = bundle.getString("title");
 
-            NotificationCompat.Builder notificationBuilder = new NotificationCompat.Builder(context, isWithFillScreenIntent ? NOTIFICATION_CHANNEL_ID : NOTIFICATION_CHANNEL_CALL_ID)
+            RNPushNotificationTemplates.Template template = getTemplates().get(NotificationChannelManager.CHANNELS.CALLS);
+            NotificationCompat.Builder notificationBuilder = template.newBuilder(context, isWithFillScreenIntent ? NOTIFICATION_CHANNEL_ID : NOTIFICATION_CHANNEL_CALL_ID)
                     .setContentTitle(title)
                     .setVisibility(NotificationCompat.VISIBILITY_PUBLIC)
                     .setPriority(NotificationCompat.PRIORITY_HIGH)
                     .setOngoing(true)
                     .setColor(blueColor)
-                    .setCategory(NotificationCompat.CATEGORY_CALL);
-
-            Resources res = context.getResources();
-            String packageName = context.getPackageName();
-            String smallIcon = bundle.getString("smallIcon");
-
-            int smallIconResId;
-
-            if (smallIcon != null) {
-                smallIconResId = res.getIdentifier(smallIcon, "mipmap", packageName);
-            } else {
-                smallIconResId = res.getIdentifier("ic_notification", "mipmap", packageName);
-            }
-
-            if (smallIconResId == 0) {
-                smallIconResId = res.getIdentifier("ic_launcher", "mipmap", packageName);
-
-                if (smallIconResId == 0) {
-                    smallIconResId = android.R.drawable.ic_dialog_info;
-                }
-            }
-
-            notificationBuilder.setSmallIcon(smallIconResId);
+                    .setCategory(NotificationCompat.CATEGORY_CALL)
+                    .setSmallIcon(template.smallIconFor(bundle, getResources()));
 
             if (isWithFillScreenIntent) {
                 String contentText = bundle.getString("message");
@@ -293,9 +340,58 @@ public class RNPushNotificationHelper {
     }
 
     public void sendToMessagingNotifications(Bundle bundle) {
-        System.out.println("[sendToMessagingNotificatios][arguments]");
-        System.out.println(bundle);
+        RNPushNotificationLog.v("[sendToMessagingNotifications] ", bundle);
 
+        try {
+            int notificationID = bundle.getInt("notificationID");
+            String message_id = bundle.getString("message_id");
+
+            if (message_id != null && RNPushNotificationMessageLine.isReceived(message_id)) {
+                // JS enriching a message that was already shown from the push replaces its line
+                if (!bundle.getBoolean("nativeRendered") || !RNPushNotificationMessageLine.replaceLine(notificationID, bundle)) {
+                    RNPushNotificationLog.d("[sendToMessagingNotifications] already received: ", message_id);
+                    return;
+                }
+            } else {
+                RNPushNotificationLog.d("[sendToMessagingNotifications] id: ", notificationID);
+
+                // Another thread may have added the same message since the check above
+                if (RNPushNotificationMessageLine.addLineToNotification(notificationID, bundle) == null) {
+                    return;
+                }
+            }
+
+            // Bursts into one dialog are collapsed into a single build/notify
+            getMessagingRenderCoalescer().submit(notificationID, bundle, new RNPushNotificationRenderCoalescer.Renderer() {
+                @Override
+                public void render(int notificationID, Bundle latestBundle) {
+                    renderMessagingNotification(notificationID, latestBundle);
+                }
+            });
+        }  catch (Exception e) {
+            Log.e(LOG_TAG, "failed to send push notification", e);
+        }
+    }
+
+    private RNPushNotificationRenderCoalescer getMessagingRenderCoalescer() {
+        synchronized (RNPushNotificationHelper.class) {
+            if (messagingRenderCoalescer == null) {
+                messagingRenderCoalescer = new RNPushNotificationRenderCoalescer(
+                        config.getMessagingRenderWindow(), config.getMessagingRenderMaxDelay());
+            }
+            return messagingRenderCoalescer;
+        }
+    }
+
+    public static void cancelPendingMessagingRender(int notificationID) {
+        synchronized (RNPushNotificationHelper.class) {
+            if (messagingRenderCoalescer != null) {
+                messagingRenderCoalescer.cancel(notificationID);
+            }
+        }
+    }
+
+    private void renderMessagingNotification(int notificationID, Bundle bundle) {
         try {
             Class intentClass = getMainActivityClass();
             if (intentClass == null) {
@@ -303,57 +399,42 @@ public class RNPushNotificationHelper {
                 return;
             }
 
-            int notificationID = bundle.getInt("notificationID");
-            String message_id = bundle.getString("message_id");
-
-            if (message_id != null && RNPushNotificationMessageLine.isReceived(message_id)) {
-                System.out.println("[sendToMessagingNotificatios][isExists]: " + message_id);
+            // A snapshot, other threads can keep adding lines while this one renders
+            RNPushNotificationLines allMessages = RNPushNotificationMessageLine.getAllMessage(notificationID);
+            if (allMessages.isEmpty()) {
+                // Cleared while the render was pending
                 return;
             }
 
-            System.out.println("[sendToMessagingNotificatios][id]: " + notificationID);
-
+            String message_id = bundle.getString("message_id");
             boolean isPrivateDialog = bundle.getBoolean("is_private");
             String dialog = bundle.getString("dialog");
             String notificationChannelType = bundle.getString("сhannelType");
             NotificationChannelManager.CHANNELS channelType = notificationChannelManager.getType(notificationChannelType);
 
-            ArrayList<Bundle> allMessages = RNPushNotificationMessageLine.addLineToNotification(notificationID, bundle);
+            RNPushNotificationTemplates.Template template = getTemplates().get(channelType);
+            String channelId = template.channelId();
+            NotificationCompat.Builder notificationBuilder = template.newBuilder(context, channelId != null ? channelId : NOTIFICATION_CHANNEL_ID);
 
-            NotificationCompat.Builder notificationBuilder =  new NotificationCompat.Builder(context, Build.VERSION.SDK_INT >= Build.VERSION_CODES.O ? notificationChannelManager.createChannelIfNotExists(channelType) : NOTIFICATION_CHANNEL_ID);
-
-            NotificationCompat.MessagingStyle messagingStyle = new NotificationCompat.MessagingStyle(MESSAGING_STYLE_TEXT);
-
-            if (android.os.Build.VERSION.SDK_INT <= android.os.Build.VERSION_CODES.O) {
-                messagingStyle.setConversationTitle(dialog);
-            }
-
-            if (!isPrivateDialog) {
-                messagingStyle.addMessage("", 0, dialog + "(" + allMessages.size() + " new messages)");
-            }
+            RNPushNotificationLines.Line[] lines = allMessages.toArray();
+            int historyWindow = Math.min(lines.length, Math.max(1, config.getMessagingHistoryWindow()));
 
             ArrayList<String> message_ids = new ArrayList<>();
 
-            for(Bundle messageBundle : allMessages) {
-                message_ids.add(messageBundle.getString("message_id"));
-
-                messagingStyle.addMessage(messageBundle.getString("message"), 0, messageBundle.getString("sender"));
+            for(RNPushNotificationLines.Line line : lines) {
+                message_ids.add(line.message_id);
             }
 
             notificationBuilder
                     .setContentTitle(dialog)
                     .setContentText(dialog)
                     .setVisibility(NotificationCompat.VISIBILITY_PRIVATE)
-                    .setStyle(messagingStyle)
                     .setAutoCancel(true)
                     .setShowWhen(true)
                     .setGroup(dialog)
                     .setColor(blueColor)
                     .setPriority(NotificationCompat.PRIORITY_MAX);
 
-            Resources res = context.getResources();
-            String packageName = context.getPackageName();
-
             Uri soundUri = getNotificationSound(bundle);
             if (soundUri != null) {
                 notificationBuilder.setSound(soundUri);
@@ -365,45 +446,27 @@ public class RNPushNotificationHelper {
                 notificationBuilder.setNumber(Integer.parseInt(numberString));
             }
 
-            String smallIcon = bundle.getString("smallIcon");
             String largeIcon = bundle.getString("largeIcon");
 
-            int smallIconResId;
             int largeIconResId;
 
-            if (smallIcon != null) {
-                smallIconResId = res.getIdentifier(smallIcon, "mipmap", packageName);
-            } else {
-                smallIconResId = res.getIdentifier("ic_notification", "mipmap", packageName);
-            }
-
-            if (smallIconResId == 0) {
-                smallIconResId = res.getIdentifier("ic_launcher", "mipmap", packageName);
-
-                if (smallIconResId == 0) {
-                    smallIconResId = android.R.drawable.ic_dialog_info;
-                }
-            }
-
             if (largeIcon != null) {
-                largeIconResId = res.getIdentifier(largeIcon, "mipmap", packageName);
+                largeIconResId = getResources().getIdentifier(largeIcon, "mipmap");
             } else {
-                largeIconResId = res.getIdentifier("ic_launcher", "mipmap", packageName);
+                largeIconResId = getResources().getIdentifier("ic_launcher", "mipmap");
             }
 
-            Bitmap largeIconBitmap = BitmapFactory.decodeResource(res, largeIconResId);
+            Bitmap largeIconBitmap = getResources().getBitmap(largeIconResId);
 
             if (largeIconResId != 0 && (largeIcon != null || Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP)) {
                 notificationBuilder.setLargeIcon(largeIconBitmap);
             }
 
-            notificationBuilder.setSmallIcon(smallIconResId);
+            notificationBuilder.setSmallIcon(template.smallIconFor(bundle, getResources()));
 
-            if (!bundle.containsKey("vibrate") || bundle.getBoolean("vibrate")) {
-                long vibration = bundle.containsKey("vibration") ? (long) bundle.getDouble("vibration") : DEFAULT_VIBRATION;
-                if (vibration == 0)
-                    vibration = DEFAULT_VIBRATION;
-                notificationBuilder.setVibrate(new long[]{0, vibration});
+            long[] vibration = template.vibrationFor(bundle);
+            if (vibration != null) {
+                notificationBuilder.setVibrate(vibration);
             }
 
             Intent intent = new Intent(context, intentClass);
@@ -436,8 +499,6 @@ public class RNPushNotificationHelper {
                     actionIntent.addFlags(Intent.FLAG_ACTIVITY_SINGLE_TOP);
                     actionIntent.setAction(context.getPackageName() + "." + actionName);
 
-                    System.out.println("[Action Bundle] " + actionBundle);
-
                     // Add "action" for later identifying which button gets pressed.
                     actionBundle.putString("action", actionName);
                     actionBundle.putString(JSPushNotificationTask.BUNDLE_TASK_NAME_KEY, jsBgTaskName);
@@ -468,8 +529,7 @@ public class RNPushNotificationHelper {
                 }
             }
 
-            Log.d("[NID]", "" + notificationID);
-            System.out.println("[IntentBundle]: " + bundle);
+            RNPushNotificationLog.d("[renderMessagingNotification] id: ", notificationID);
 
             bundle.putBoolean("userInteraction", true);
 
@@ -477,7 +537,16 @@ public class RNPushNotificationHelper {
             NotificationManager notificationManager = notificationManager();
 //            checkOrCreateChannel(notificationManager, false, soundName);
 
-            Notification notification = notificationBuilder.build();
+            // Halve the history until the notification is well within the binder transaction limit
+            Notification notification;
+            while (true) {
+                notificationBuilder.setStyle(buildMessagingStyle(dialog, isPrivateDialog, lines, allMessages.total(), historyWindow));
+                notification = notificationBuilder.build();
+                if (historyWindow <= 1 || getParcelSize(notification) <= MAX_NOTIFICATION_PARCEL_SIZE) {
+                    break;
+                }
+                historyWindow = historyWindow / 2;
+            }
 
             notificationManager.notify(notificationID, notification);
 
@@ -487,10 +556,109 @@ public class RNPushNotificationHelper {
         }
     }
 
+    /**
+     * Shows the last {@code historyWindow} lines, preceded by a line counting the older ones,
+     * including those no longer retained.
+     */
+    private NotificationCompat.MessagingStyle buildMessagingStyle(String dialog, boolean isPrivateDialog,
+                                                                  RNPushNotificationLines.Line[] lines, int total, int historyWindow) {
+        NotificationCompat.MessagingStyle messagingStyle = new NotificationCompat.MessagingStyle(MESSAGING_STYLE_TEXT);
+
+        if (android.os.Build.VERSION.SDK_INT <= android.os.Build.VERSION_CODES.O) {
+            messagingStyle.setConversationTitle(dialog);
+        }
+
+        if (!isPrivateDialog) {
+            messagingStyle.addMessage("", 0, dialog + "(" + total + " new messages)");
+        }
+
+        int first = lines.length - historyWindow;
+        if (total - historyWindow > 0) {
+            messagingStyle.addMessage("+" + (total - historyWindow) + " more", 0, "");
+        }
+
+        for (int i = first; i < lines.length; i++) {
+            messagingStyle.addMessage(lines[i].message, 0, lines[i].sender);
+        }
+        return messagingStyle;
+    }
+
+    private static int getParcelSize(Notification notification) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            notification.writeToParcel(parcel, 0);
+            return parcel.dataSize();
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    private RNPushNotificationRenderCoalescer getGroupSummaryCoalescer() {
+        synchronized (RNPushNotificationHelper.class) {
+            if (groupSummaryCoalescer == null) {
+                groupSummaryCoalescer = new RNPushNotificationRenderCoalescer(
+                        config.getGroupSummaryWindow(), config.getGroupSummaryMaxDelay());
+            }
+            return groupSummaryCoalescer;
+        }
+    }
+
+    /**
+     * Posts the group summary, unless it would show exactly what is already posted. The summary
+     * only counts as posted once notify() returned, so a failed post is retried by the next render.
+     */
+    private void renderGroupSummary(Bundle bundle) {
+        Class intentClass = getMainActivityClass();
+        if (intentClass == null) {
+            Log.e(LOG_TAG, "No activity class found for the group summary");
+            return;
+        }
+
+        RNPushNotificationsMessages.Summary summary = hashMapDialogsToMessages.getSummary();
+        synchronized (RNPushNotificationHelper.class) {
+            if (summary.messages == 0 || summary.isSameAs(postedGroupSummary)) {
+                return;
+            }
+        }
+
+        Intent intentDelete = new Intent(context, DeleteSummaryNotification.class);
+        PendingIntent pendingIntentDelete = PendingIntent.getBroadcast(context, 0, intentDelete, 0);
+
+        Intent intentContext = new Intent(context, intentClass);
+        intentContext.putExtra(CLEAR_MESSAGE, true);
+        PendingIntent pendingIntentContent = PendingIntent.getActivity(context, NOTIFICATION_WITH_GROUP_ID, intentContext,
+                PendingIntent.FLAG_UPDATE_CURRENT);
+
+        NotificationCompat.InboxStyle inboxStyle = new NotificationCompat.InboxStyle()
+                .setBigContentTitle(summary.messages + " new messages")
+                .setSummaryText(summary.messages + " new messages from " +
+                        (summary.dialogs == 1 ?  "1 chat" : summary.dialogs + " chats"));
+        for (String line : summary.lines) {
+            inboxStyle.addLine(line);
+        }
+
+        Notification summaryNotification =
+                new NotificationCompat.Builder(context, NOTIFICATION_CHANNEL_ID)
+                        .setContentTitle(summary.messages + " new messages")
+                        .setContentText(summary.messages + " new messages")
+                        .setSmallIcon(getTemplates().get(NotificationChannelManager.CHANNELS.PUSH_MESSAGES).smallIconFor(bundle, getResources()))
+                        .setStyle(inboxStyle)
+                        .setGroup(NOTIFICATION_GROUP_ID)
+                        .setGroupSummary(true)
+                        .setContentIntent(pendingIntentContent)
+                        .setAutoCancel(true)
+                        .setDeleteIntent(pendingIntentDelete)
+                        .build();
+
+        notificationManager().notify(NOTIFICATION_WITH_GROUP_ID, summaryNotification);
+        synchronized (RNPushNotificationHelper.class) {
+            postedGroupSummary = summary;
+        }
+    }
+
     public void sendToGroupNotifications(Bundle bundle)
     {
-      System.out.println("[sendToGroupNotifications][arguments]");
-      System.out.println(bundle);
+      RNPushNotificationLog.v("[sendToGroupNotifications] ", bundle);
 
       try {
         Class intentClass = getMainActivityClass();
@@ -504,7 +672,7 @@ public class RNPushNotificationHelper {
 
         if (message == null && message_id == null) {
           // this happens when a 'data' notification is received - we do not synthesize a local notification in this case
-          Log.d(LOG_TAG, "Cannot send to notification centre because there is no 'message' and 'message_id' field in: " + bundle);
+          RNPushNotificationLog.d("Cannot send to notification centre because there is no 'message' and 'message_id' field in: ", bundle);
           return;
         }
 
@@ -513,7 +681,7 @@ public class RNPushNotificationHelper {
 
         if (dialog_id == null) {
           // this happens when a 'data' notification is received - we do not synthesize a local notification in this case
-          Log.d(LOG_TAG, "Cannot send to notification centre because there is no 'dialog_id' field in: " + bundle);
+          RNPushNotificationLog.d("Cannot send to notification centre because there is no 'dialog_id' field in: ", bundle);
           return;
         }
 
@@ -522,7 +690,7 @@ public class RNPushNotificationHelper {
 
         if (sender_id == null) {
           // this happens when a 'data' notification is received - we do not synthesize a local notification in this case
-          Log.d(LOG_TAG, "Cannot send to notification centre because there is no and 'sender_id' field in: " + bundle);
+          RNPushNotificationLog.d("Cannot send to notification centre because there is no and 'sender_id' field in: ", bundle);
           return;
         }
 
@@ -534,25 +702,19 @@ public class RNPushNotificationHelper {
 
           int notificationID = Integer.parseInt(notificationIdString);
 
-          boolean success = hashMapDialogsToMessages.addMessage(dialog_id, new RNPushNotificationMessage(notificationID, sender_id, sender, message_id, message));
-          if(!success)
+          RNPushNotificationsMessages.Summary summary = hashMapDialogsToMessages.addMessageAndSummarize(dialog_id,
+                  new RNPushNotificationMessage(notificationID, sender_id, sender, message_id, message));
+          if(summary == null)
           {
               return;
           }
 
-          System.out.println("[Version]");
-          System.out.println(Build.VERSION.SDK_INT);
-          System.out.println(Build.VERSION_CODES.O);
-
           if(Build.VERSION.SDK_INT < Build.VERSION_CODES.N)
           {
               sendToNotificationCentre(bundle);
               return;
           }
 
-        Resources res = context.getResources();
-        String packageName = context.getPackageName();
-
         String title = sender;
         if (title == null) {
           ApplicationInfo appInfo = context.getApplicationInfo();
@@ -562,7 +724,8 @@ public class RNPushNotificationHelper {
         int priority = NotificationCompat.PRIORITY_HIGH;
         int visibility = NotificationCompat.VISIBILITY_PRIVATE;
 
-        NotificationCompat.Builder notification = new NotificationCompat.Builder(context, NOTIFICATION_CHANNEL_ID)
+        RNPushNotificationTemplates.Template template = getTemplates().get(NotificationChannelManager.CHANNELS.IN_APP_GROUP);
+        NotificationCompat.Builder notification = template.newBuilder(context, NOTIFICATION_CHANNEL_ID)
           .setContentTitle(title)
           .setTicker(bundle.getString("ticker"))
           .setVisibility(visibility)
@@ -573,39 +736,24 @@ public class RNPushNotificationHelper {
         notification.setContentText(message);
 
 
-        String numberString = bundle.getString("number", hashMapDialogsToMessages.getCountOfMessage() + "");
+        String numberString = bundle.getString("number", summary.messages + "");
 
         if (numberString != null) {
           notification.setNumber(Integer.parseInt(numberString));
         }
 
-        String smallIcon = bundle.getString("smallIcon");
         String largeIcon = bundle.getString("largeIcon");
 
-        int smallIconResId;
+        int smallIconResId = template.smallIconFor(bundle, getResources());
         int largeIconResId;
 
-        if (smallIcon != null) {
-          smallIconResId = res.getIdentifier(smallIcon, "mipmap", packageName);
-        } else {
-          smallIconResId = res.getIdentifier("ic_notification", "mipmap", packageName);
-        }
-
-        if (smallIconResId == 0) {
-          smallIconResId = res.getIdentifier("ic_launcher", "mipmap", packageName);
-
-          if (smallIconResId == 0) {
-            smallIconResId = android.R.drawable.ic_dialog_info;
-          }
-        }
-
         if (largeIcon != null) {
-            largeIconResId = res.getIdentifier(largeIcon, "mipmap", packageName);
+            largeIconResId = getResources().getIdentifier(largeIcon, "mipmap");
         } else {
-            largeIconResId = res.getIdentifier("ic_launcher", "mipmap", packageName);
+            largeIconResId = getResources().getIdentifier("ic_launcher", "mipmap");
         }
 
-        Bitmap largeIconBitmap = BitmapFactory.decodeResource(res, largeIconResId);
+        Bitmap largeIconBitmap = getResources().getBitmap(largeIconResId);
 
         if (largeIconResId != 0 && (largeIcon != null || Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP)) {
           notification.setLargeIcon(largeIconBitmap);
@@ -628,11 +776,10 @@ public class RNPushNotificationHelper {
           notification.setCategory(NotificationCompat.CATEGORY_CALL);
 
           String color = bundle.getString("color");
-          int defaultColor = this.config.getNotificationColor();
           if (color != null) {
             notification.setColor(Color.parseColor(color));
-          } else if (defaultColor != -1) {
-            notification.setColor(defaultColor);
+          } else if (template.color != -1) {
+            notification.setColor(template.color);
           }
         }
 
@@ -655,17 +802,15 @@ public class RNPushNotificationHelper {
           PendingIntent pendingIntentDeleteNotification = PendingIntent.getBroadcast(context, 0, intentDeleteNotification, 0);
           notification.setDeleteIntent(pendingIntentDeleteNotification);
 
-        if (!bundle.containsKey("vibrate") || bundle.getBoolean("vibrate")) {
-          long vibration = bundle.containsKey("vibration") ? (long) bundle.getDouble("vibration") : DEFAULT_VIBRATION;
-          if (vibration == 0)
-            vibration = DEFAULT_VIBRATION;
-          notification.setVibrate(new long[]{0, vibration});
+        long[] vibration = template.vibrationFor(bundle);
+        if (vibration != null) {
+          notification.setVibrate(vibration);
         }
 
           JSONArray actionsArray = null;
           try {
               actionsArray = bundle.getString("actions") != null ? new JSONArray(bundle.getString("actions")) : null;
-              Log.d(LOG_TAG, "[Actions]: " + actionsArray);
+              RNPushNotificationLog.d("[Actions]: ", actionsArray);
           } catch (JSONException e) {
               Log.e(LOG_TAG, "Exception while converting actions to JSON object.", e);
           }
@@ -688,8 +833,6 @@ public class RNPushNotificationHelper {
                   actionIntent.addFlags(Intent.FLAG_ACTIVITY_SINGLE_TOP);
                   actionIntent.setAction(context.getPackageName() + "." + action);
 
-                  System.out.println("[Action Bundle]: " + bundle);
-
                   // Add "action" for later identifying which button gets pressed.
                   bundle.putString("action", action);
                   bundle.putString(JSPushNotificationTask.BUNDLE_TASK_NAME_KEY, JSPushNotificationTask.MARK_AS_READ_TASK_KEY);
@@ -701,19 +844,15 @@ public class RNPushNotificationHelper {
               }
           }
 
-        // Remove the notification from the shared preferences once it has been shown
+        // Remove the notification from the schedule store once it has been shown
         // to avoid showing the notification again when the phone is rebooted. If the
         // notification is not removed, then every time the phone is rebooted, we will
-        // try to reschedule all the notifications stored in shared preferences and since
+        // try to reschedule all the notifications stored in the schedule store and since
         // these notifications will be in the past time, they will be shown immediately
-        // to the user which we shouldn't do. So, remove the notification from the shared
-        // preferences once it has been shown to the user. If it is a repeating notification
+        // to the user which we shouldn't do. So, remove the notification from the schedule
+        // store once it has been shown to the user. If it is a repeating notification
         // it will be scheduled again.
-        if (scheduledNotificationsPersistence.getString(notificationIdString, null) != null) {
-          SharedPreferences.Editor editor = scheduledNotificationsPersistence.edit();
-          editor.remove(notificationIdString);
-          commit(editor);
-        }
+        scheduledNotificationsStore.remove(notificationIdString);
 
         Notification info = notification.build();
         info.defaults |= Notification.DEFAULT_LIGHTS;
@@ -725,31 +864,13 @@ public class RNPushNotificationHelper {
           notificationManager.notify(notificationID, info);
         }
 
-          Intent intentDelete = new Intent(context, DeleteSummaryNotification.class);
-          PendingIntent pendingIntentDelete = PendingIntent.getBroadcast(context, 0, intentDelete, 0);
-
-          Intent intentContext = new Intent(context, getMainActivityClass());
-          intentContext.putExtra(CLEAR_MESSAGE, true);
-          PendingIntent pendingIntentContent = PendingIntent.getActivity(context, NOTIFICATION_WITH_GROUP_ID, intentContext,
-                  PendingIntent.FLAG_UPDATE_CURRENT);
-
-        Notification summaryNotification =
-          new NotificationCompat.Builder(context, NOTIFICATION_CHANNEL_ID)
-            .setContentTitle(hashMapDialogsToMessages.getCountOfMessage() + " new messages")
-            .setContentText(hashMapDialogsToMessages.getCountOfMessage() + " new messages")
-            .setSmallIcon(smallIconResId)
-            .setStyle(new NotificationCompat.InboxStyle()
-              .setBigContentTitle(hashMapDialogsToMessages.getCountOfMessage() + " new messages")
-              .setSummaryText(hashMapDialogsToMessages.getCountOfMessage() + " new messages from " +
-                  (hashMapDialogsToMessages.getCountOfDialogs() == 1 ?  "1 chat" : hashMapDialogsToMessages.getCountOfDialogs() + " chats")))
-            .setGroup(NOTIFICATION_GROUP_ID)
-            .setGroupSummary(true)
-            .setContentIntent(pendingIntentContent)
-            .setAutoCancel(true)
-            .setDeleteIntent(pendingIntentDelete)
-            .build();
-
-        notificationManager.notify(NOTIFICATION_WITH_GROUP_ID, summaryNotification);
+        // Bursts re-post the summary at most once per window, from the state at that time
+        getGroupSummaryCoalescer().submit(NOTIFICATION_WITH_GROUP_ID, bundle, new RNPushNotificationRenderCoalescer.Renderer() {
+            @Override
+            public void render(int notificationID, Bundle latestBundle) {
+                renderGroupSummary(latestBundle);
+            }
+        });
 
         // Can't use setRepeating for recurring notifications because setRepeating
         // is inexact by default starting API 19 and the notifications are not fired
@@ -771,7 +892,7 @@ public class RNPushNotificationHelper {
 
             if (bundle.getString("message") == null) {
                 // this happens when a 'data' notification is received - we do not synthesize a local notification in this case
-                Log.d(LOG_TAG, "Cannot send to notification centre because there is no 'message' field in: " + bundle);
+                RNPushNotificationLog.d("Cannot send to notification centre because there is no 'message' field in: ", bundle);
                 return;
             }
 
@@ -781,9 +902,6 @@ public class RNPushNotificationHelper {
                 return;
             }
 
-            Resources res = context.getResources();
-            String packageName = context.getPackageName();
-
             String title = bundle.getString("title");
             if (title == null) {
                 ApplicationInfo appInfo = context.getApplicationInfo();
@@ -834,7 +952,8 @@ public class RNPushNotificationHelper {
                 }
             }
 
-            NotificationCompat.Builder notification = new NotificationCompat.Builder(context, NOTIFICATION_CHANNEL_ID)
+            RNPushNotificationTemplates.Template template = getTemplates().get(NotificationChannelManager.CHANNELS.PUSH_MESSAGES);
+            NotificationCompat.Builder notification = template.newBuilder(context, NOTIFICATION_CHANNEL_ID)
                     .setContentTitle(title)
                     .setTicker(bundle.getString("ticker"))
                     .setVisibility(visibility)
@@ -862,40 +981,24 @@ public class RNPushNotificationHelper {
                 notification.setNumber(Integer.parseInt(numberString));
             }
 
-            int smallIconResId;
+            int smallIconResId = template.smallIconFor(bundle, getResources());
             int largeIconResId;
 
-            String smallIcon = bundle.getString("smallIcon");
-
-            if (smallIcon != null) {
-                smallIconResId = res.getIdentifier(smallIcon, "mipmap", packageName);
-            } else {
-                smallIconResId = res.getIdentifier("ic_notification", "mipmap", packageName);
-            }
-
-            if (smallIconResId == 0) {
-                smallIconResId = res.getIdentifier("ic_launcher", "mipmap", packageName);
-
-                if (smallIconResId == 0) {
-                    smallIconResId = android.R.drawable.ic_dialog_info;
-                }
-            }
-
             if (largeIcon != null) {
-                largeIconResId = res.getIdentifier(largeIcon, "mipmap", packageName);
+                largeIconResId = getResources().getIdentifier(largeIcon, "mipmap");
             } else {
-                largeIconResId = res.getIdentifier("ic_notification", "mipmap", packageName);
+                largeIconResId = getResources().getIdentifier("ic_notification", "mipmap");
             }
 
             if (largeIconResId == 0) {
-                largeIconResId = res.getIdentifier("ic_launcher", "mipmap", packageName);
+                largeIconResId = getResources().getIdentifier("ic_launcher", "mipmap");
 
                 if (largeIconResId == 0) {
                     largeIconResId = android.R.drawable.ic_dialog_info;
                 }
             }
 
-            Bitmap largeIconBitmap = BitmapFactory.decodeResource(res, largeIconResId);
+            Bitmap largeIconBitmap = getResources().getBitmap(largeIconResId);
 
             if (largeIconResId != 0 && (largeIcon != null || Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP)) {
                 notification.setLargeIcon(largeIconBitmap);
@@ -926,12 +1029,10 @@ public class RNPushNotificationHelper {
                         // So the strings 'my_sound.mp3' AND 'my_sound' are accepted
                         // The reason is to make the iOS and android javascript interfaces compatible
 
-                        int resId;
-                        if (context.getResources().getIdentifier(soundName, "raw", context.getPackageName()) != 0) {
-                            resId = context.getResources().getIdentifier(soundName, "raw", context.getPackageName());
-                        } else {
+                        int resId = getResources().getIdentifier(soundName, "raw");
+                        if (resId == 0) {
                             soundName = soundName.substring(0, soundName.lastIndexOf('.'));
-                            resId = context.getResources().getIdentifier(soundName, "raw", context.getPackageName());
+                            resId = getResources().getIdentifier(soundName, "raw");
                         }
 
                         soundUri = Uri.parse("android.resource://" + context.getPackageName() + "/" + resId);
@@ -948,11 +1049,10 @@ public class RNPushNotificationHelper {
                 notification.setCategory(NotificationCompat.CATEGORY_CALL);
 
                 String color = bundle.getString("color");
-                int defaultColor = this.config.getNotificationColor();
                 if (color != null) {
                     notification.setColor(Color.parseColor(color));
-                } else if (defaultColor != -1) {
-                    notification.setColor(defaultColor);
+                } else if (template.color != -1) {
+                    notification.setColor(template.color);
                 }
             }
 
@@ -966,17 +1066,15 @@ public class RNPushNotificationHelper {
 
             notification.setContentIntent(pendingIntent);
 
-            if (!bundle.containsKey("vibrate") || bundle.getBoolean("vibrate")) {
-                long vibration = bundle.containsKey("vibration") ? (long) bundle.getDouble("vibration") : DEFAULT_VIBRATION;
-                if (vibration == 0)
-                    vibration = DEFAULT_VIBRATION;
-                notification.setVibrate(new long[]{0, vibration});
+            long[] vibration = template.vibrationFor(bundle);
+            if (vibration != null) {
+                notification.setVibrate(vibration);
             }
 
             JSONArray actionsArray = null;
             try {
                 actionsArray = bundle.getString("actions") != null ? new JSONArray(bundle.getString("actions")) : null;
-                Log.d(LOG_TAG, "[Actions]: " + actionsArray);
+                RNPushNotificationLog.d("[Actions]: ", actionsArray);
             } catch (JSONException e) {
                 Log.e(LOG_TAG, "Exception while converting actions to JSON object.", e);
             }
@@ -999,8 +1097,6 @@ public class RNPushNotificationHelper {
                     actionIntent.addFlags(Intent.FLAG_ACTIVITY_SINGLE_TOP);
                     actionIntent.setAction(context.getPackageName() + "." + action);
 
-                    System.out.println("[Action Bundle]: " + bundle);
-
                     // Add "action" for later identifying which button gets pressed.
                     bundle.putString("action", action);
                     bundle.putString(JSPushNotificationTask.BUNDLE_TASK_NAME_KEY, JSPushNotificationTask.MARK_AS_READ_TASK_KEY);
@@ -1012,19 +1108,15 @@ public class RNPushNotificationHelper {
                 }
             }
 
-            // Remove the notification from the shared preferences once it has been shown
+            // Remove the notification from the schedule store once it has been shown
             // to avoid showing the notification again when the phone is rebooted. If the
             // notification is not removed, then every time the phone is rebooted, we will
-            // try to reschedule all the notifications stored in shared preferences and since
+            // try to reschedule all the notifications stored in the schedule store and since
             // these notifications will be in the past time, they will be shown immediately
-            // to the user which we shouldn't do. So, remove the notification from the shared
-            // preferences once it has been shown to the user. If it is a repeating notification
+            // to the user which we shouldn't do. So, remove the notification from the schedule
+            // store once it has been shown to the user. If it is a repeating notification
             // it will be scheduled again.
-            if (scheduledNotificationsPersistence.getString(notificationIdString, null) != null) {
-                SharedPreferences.Editor editor = scheduledNotificationsPersistence.edit();
-                editor.remove(notificationIdString);
-                commit(editor);
-            }
+            scheduledNotificationsStore.remove(notificationIdString);
 
             Notification info = notification.build();
             info.defaults |= Notification.DEFAULT_LIGHTS;
@@ -1047,53 +1139,105 @@ public class RNPushNotificationHelper {
     }
 
     private void scheduleNextNotificationIfRepeating(Bundle bundle) {
+        long repeatInterval = getRepeatInterval(bundle);
+
+        if (repeatInterval > 0) {
+            long fireDate = (long) bundle.getDouble("fireDate");
+            long newFireDate = fireDate + repeatInterval;
+
+            RNPushNotificationLog.d("Repeating notification, id and time: ", bundle.getString("id"), newFireDate);
+            bundle.putDouble("fireDate", newFireDate);
+            this.sendNotificationScheduled(bundle);
+        }
+    }
+
+    /**
+     * @return the time between two occurrences of a repeating notification, or 0 if it does not repeat
+     */
+    static long getRepeatInterval(Bundle bundle) {
         String repeatType = bundle.getString("repeatType");
         long repeatTime = (long) bundle.getDouble("repeatTime");
 
-        if (repeatType != null) {
-            long fireDate = (long) bundle.getDouble("fireDate");
+        if (repeatType == null) {
+            return 0;
+        }
 
-            boolean validRepeatType = Arrays.asList("time", "week", "day", "hour", "minute").contains(repeatType);
+        boolean validRepeatType = Arrays.asList("time", "week", "day", "hour", "minute").contains(repeatType);
 
-            // Sanity checks
-            if (!validRepeatType) {
-                Log.w(LOG_TAG, String.format("Invalid repeatType specified as %s", repeatType));
-                return;
-            }
+        // Sanity checks
+        if (!validRepeatType) {
+            Log.w(LOG_TAG, String.format("Invalid repeatType specified as %s", repeatType));
+            return 0;
+        }
 
-            if ("time".equals(repeatType) && repeatTime <= 0) {
-                Log.w(LOG_TAG, "repeatType specified as time but no repeatTime " +
-                        "has been mentioned");
+        if ("time".equals(repeatType) && repeatTime <= 0) {
+            Log.w(LOG_TAG, "repeatType specified as time but no repeatTime " +
+                    "has been mentioned");
+            return 0;
+        }
+
+        switch (repeatType) {
+            case "time":
+                return repeatTime;
+            case "week":
+                return 7 * ONE_DAY;
+            case "day":
+                return ONE_DAY;
+            case "hour":
+                return ONE_HOUR;
+            case "minute":
+                return ONE_MINUTE;
+        }
+        return 0;
+    }
+
+    /**
+     * Shows a single notification standing in for the scheduled notifications that were missed
+     * while the device was off.
+     *
+     * @param lines a few titles of the missed notifications, shown in the expanded view
+     */
+    public void sendCatchUpSummary(int missedCount, List<String> lines) {
+        try {
+            Class intentClass = getMainActivityClass();
+            if (intentClass == null) {
+                Log.e(LOG_TAG, "No activity class found for the catch-up notification");
                 return;
             }
 
-            long newFireDate = 0;
+            int smallIconResId = getResources().getSmallIcon(null);
 
-            switch (repeatType) {
-                case "time":
-                    newFireDate = fireDate + repeatTime;
-                    break;
-                case "week":
-                    newFireDate = fireDate + 7 * ONE_DAY;
-                    break;
-                case "day":
-                    newFireDate = fireDate + ONE_DAY;
-                    break;
-                case "hour":
-                    newFireDate = fireDate + ONE_HOUR;
-                    break;
-                case "minute":
-                    newFireDate = fireDate + ONE_MINUTE;
-                    break;
-            }
+            String text = missedCount == 1 ? "1 missed notification" : missedCount + " missed notifications";
 
-            // Sanity check, should never happen
-            if (newFireDate != 0) {
-                Log.d(LOG_TAG, String.format("Repeating notification with id %s at time %s",
-                        bundle.getString("id"), Long.toString(newFireDate)));
-                bundle.putDouble("fireDate", newFireDate);
-                this.sendNotificationScheduled(bundle);
+            NotificationCompat.InboxStyle style = new NotificationCompat.InboxStyle().setBigContentTitle(text);
+            for (String line : lines) {
+                style.addLine(line);
             }
+            if (missedCount > lines.size()) {
+                style.setSummaryText("+" + (missedCount - lines.size()) + " more");
+            }
+
+            Intent intent = new Intent(context, intentClass);
+            intent.addFlags(Intent.FLAG_ACTIVITY_SINGLE_TOP);
+            PendingIntent pendingIntent = PendingIntent.getActivity(context, CATCH_UP_NOTIFICATION_ID, intent,
+                    PendingIntent.FLAG_UPDATE_CURRENT);
+
+            NotificationManager notificationManager = notificationManager();
+            checkOrCreateChannel(notificationManager, false, null);
+
+            Notification summaryNotification = new NotificationCompat.Builder(context, NOTIFICATION_CHANNEL_ID)
+                    .setContentTitle(text)
+                    .setContentText(lines.isEmpty() ? text : lines.get(0))
+                    .setSmallIcon(smallIconResId)
+                    .setStyle(style)
+                    .setNumber(missedCount)
+                    .setContentIntent(pendingIntent)
+                    .setAutoCancel(true)
+                    .build();
+
+            notificationManager.notify(CATCH_UP_NOTIFICATION_ID, summaryNotification);
+        } catch (Exception e) {
+            Log.e(LOG_TAG, "failed to send catch-up notification", e);
         }
     }
 
@@ -1102,6 +1246,7 @@ public class RNPushNotificationHelper {
 
         NotificationManager notificationManager = notificationManager();
         notificationManager.cancelAll();
+        forgetGroupSummary();
     }
 
     public void clearNotification(int notificationID) {
@@ -1109,46 +1254,48 @@ public class RNPushNotificationHelper {
 
         NotificationManager notificationManager = notificationManager();
         notificationManager.cancel(notificationID);
+        if (notificationID == NOTIFICATION_WITH_GROUP_ID) {
+            forgetGroupSummary();
+        }
+    }
+
+    // The summary is no longer shown, the next one must be posted even if it looks the same
+    private static void forgetGroupSummary() {
+        synchronized (RNPushNotificationHelper.class) {
+            postedGroupSummary = null;
+        }
     }
 
     public void cancelAllScheduledNotifications() {
         Log.i(LOG_TAG, "Cancelling all notifications");
 
-        for (String id : scheduledNotificationsPersistence.getAll().keySet()) {
+        for (String id : scheduledNotificationsStore.getAllIds()) {
             cancelScheduledNotification(id);
         }
+        getScheduler().rearm();
     }
 
     public void cancelScheduledNotification(ReadableMap userInfo) {
-        for (String id : scheduledNotificationsPersistence.getAll().keySet()) {
-            try {
-                String notificationAttributesJson = scheduledNotificationsPersistence.getString(id, null);
-                if (notificationAttributesJson != null) {
-                    RNPushNotificationAttributes notificationAttributes = fromJson(notificationAttributesJson);
-                    if (notificationAttributes.matches(userInfo)) {
-                        cancelScheduledNotification(id);
-                    }
-                }
-            } catch (JSONException e) {
-                Log.w(LOG_TAG, "Problem dealing with scheduled notification " + id, e);
-            }
+        // Only the candidates found through the field index are parsed and matched
+        for (RNPushNotificationAttributes notificationAttributes : scheduledNotificationsStore.findMatching(userInfo)) {
+            cancelScheduledNotification(notificationAttributes.getId());
         }
+        getScheduler().rearm();
     }
 
     private void cancelScheduledNotification(String notificationIDString) {
         Log.i(LOG_TAG, "Cancelling notification: " + notificationIDString);
 
-        // remove it from the alarm manger schedule
-        Bundle b = new Bundle();
-        b.putString("id", notificationIDString);
-        getAlarmManager().cancel(toScheduleNotificationIntent(b));
+        // remove the alarm an earlier version may have registered for it, the scheduler
+        // alarm is re-armed by the caller
+        PendingIntent legacyIntent = findLegacyScheduleNotificationIntent(notificationIDString);
+        if (legacyIntent != null) {
+            getAlarmManager().cancel(legacyIntent);
+            legacyIntent.cancel();
+        }
 
-        if (scheduledNotificationsPersistence.contains(notificationIDString)) {
-            // remove it from local storage
-            SharedPreferences.Editor editor = scheduledNotificationsPersistence.edit();
-            editor.remove(notificationIDString);
-            commit(editor);
-        } else {
+        // remove it from local storage
+        if (!scheduledNotificationsStore.remove(notificationIDString)) {
             Log.w(LOG_TAG, "Unable to find notification " + notificationIDString);
         }
 
@@ -1159,15 +1306,7 @@ public class RNPushNotificationHelper {
     }
 
     private NotificationManager notificationManager() {
-        return (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
-    }
-
-    private static void commit(SharedPreferences.Editor editor) {
-        if (Build.VERSION.SDK_INT < 9) {
-            editor.commit();
-        } else {
-            editor.apply();
-        }
+        return notificationManager;
     }
 
     public Uri getNotificationSound(Bundle bundle) {
@@ -1176,7 +1315,7 @@ public class RNPushNotificationHelper {
         if (!playSound) {
             return null;
         }
-        return ChannelSettings.getSoundUri(context, soundName);
+        return getResources().getSoundUri(soundName);
     }
 
     @RequiresApi(api = Build.VERSION_CODES.O)
@@ -1184,14 +1323,12 @@ public class RNPushNotificationHelper {
         if (soundName == null) {
             return;
         }
-        int resId;
-        if (context.getResources().getIdentifier(soundName, "raw", context.getPackageName()) != 0) {
-            resId = context.getResources().getIdentifier(soundName, "raw", context.getPackageName());
-        } else {
+        int resId = getResources().getIdentifier(soundName, "raw");
+        if (resId == 0) {
             int soundExtDotIndex = soundName.lastIndexOf('.');
             if (soundExtDotIndex != -1) {
                 soundName = soundName.substring(0, soundName.lastIndexOf('.'));
-                resId = context.getResources().getIdentifier(soundName, "raw", context.getPackageName());
+                resId = getResources().getIdentifier(soundName, "raw");
             } else {
                 return;
             }
@@ -0,0 +1,351 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.app.Application;
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.dieam.reactnativepushnotification.helpers.ApplicationBadgeHelper;
+import com.facebook.react.ReactApplication;
+import com.facebook.react.ReactInstanceManager;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContext;
+import com.google.firebase.messaging.RemoteMessage;
+
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static com.dieam.reactnativepushnotification.modules.RNPushNotification.LOG_TAG;
+
+/**
+ * Processes incoming FCM data messages off the main thread.
+ * <p>
+ * Parsing, de-duplication and headless task dispatch run on a single worker with a bounded
+ * queue. Only the pushes that need the React context are handed to the main looper, and those
+ * are drained in one batch per looper turn.
+ */
+class RNPushNotificationIngest {
+    private static final int WORKER_QUEUE_CAPACITY = 256;
+    private static final int RECENT_PUSH_IDS_CAPACITY = 1024;
+    private static final long RECENT_PUSH_IDS_TTL = 60 * 60 * 1000L;
+
+    static final RNPushNotificationDedupIndex recentPushIds =
+            new RNPushNotificationDedupIndex(RECENT_PUSH_IDS_CAPACITY, RECENT_PUSH_IDS_TTL);
+
+    private static RNPushNotificationIngest instance;
+
+    private final Application application;
+    private final ThreadPoolExecutor worker;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Random randomNumberGenerator = new Random(System.currentTimeMillis());
+    private final boolean isNativeMessageRendering;
+
+    private final Object pendingLock = new Object();
+    private ArrayList<Bundle> pendingContextBundles = new ArrayList<>();
+    private boolean drainScheduled = false;
+
+    private final Runnable drainPendingContextBundles = new Runnable() {
+        @Override
+        public void run() {
+            ArrayList<Bundle> bundles;
+            synchronized (pendingLock) {
+                bundles = pendingContextBundles;
+                pendingContextBundles = new ArrayList<>();
+                drainScheduled = false;
+            }
+            deliverWithReactContext(bundles);
+        }
+    };
+
+    private RNPushNotificationIngest(Application application) {
+        this.application = application;
+        this.isNativeMessageRendering = new RNPushNotificationConfig(application).isNativeMessageRendering();
+        this.worker = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(WORKER_QUEUE_CAPACITY),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "RNPushNotificationIngest");
+                        thread.setPriority(Thread.NORM_PRIORITY - 1);
+                        return thread;
+                    }
+                },
+                // When the queue is full the FCM delivery thread does the work itself,
+                // which throttles the burst without ever blocking the main thread.
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    static synchronized RNPushNotificationIngest getInstance(Application application) {
+        if (instance == null) {
+            instance = new RNPushNotificationIngest(application);
+        }
+        return instance;
+    }
+
+    void enqueue(RemoteMessage message) {
+        final Map<String, String> data = message.getData();
+        final String messageId = message.getMessageId();
+        final RemoteMessage.Notification remoteNotification = message.getNotification();
+        final String notificationTitle = remoteNotification != null ? remoteNotification.getTitle() : null;
+        final String notificationBody = remoteNotification != null ? remoteNotification.getBody() : null;
+        final boolean hasRemoteNotification = remoteNotification != null;
+
+        // Starts loading the JS bundle before the call push even reaches the worker queue
+        if (message.getPriority() == RemoteMessage.PRIORITY_HIGH && data.containsKey("callStart")) {
+            RNPushNotificationWarmUp.getInstance(application).warmUp(RNPushNotificationWarmUp.TRIGGER_CALL);
+        }
+
+        worker.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    ingest(data, messageId, hasRemoteNotification, notificationTitle, notificationBody);
+                } catch (Exception e) {
+                    Log.e(LOG_TAG, "Failed to ingest push notification", e);
+                }
+            }
+        });
+    }
+
+    private void ingest(Map<String, String> data, String googleMessageId, boolean hasRemoteNotification,
+                        String notificationTitle, String notificationBody) {
+        final RNPushNotificationRemoteData remoteData = new RNPushNotificationRemoteData(data);
+
+        if (isDuplicate(getDedupKey(remoteData, googleMessageId))) {
+            RNPushNotificationLog.v("[ingest] dropping duplicate push ", googleMessageId);
+            return;
+        }
+
+        if (remoteData.containsKey("callStart") || remoteData.containsKey("callEnd") || remoteData.containsKey("story_id")) {
+            dispatch(remoteData);
+            return;
+        }
+
+        // Putting it from remoteNotification first so it can be overriden if message
+        // data has it
+        if (hasRemoteNotification) {
+            // ^ It's null when message is from GCM
+            remoteData.putString("title", notificationTitle);
+            remoteData.putString("message", notificationBody);
+        }
+
+        // Copy `twi_body` to `message` to support Twilio
+        if (remoteData.containsKey("twi_body")) {
+            remoteData.putString("message", remoteData.getString("twi_body"));
+        }
+
+        // The data JSON is only parsed when it can fill a missing field or carries a badge
+        boolean needsPushData = !remoteData.containsKey("message") || !remoteData.containsKey("title")
+                || !remoteData.containsKey("sound") || !remoteData.containsKey("color")
+                || remoteData.pushDataMayContain("badge");
+        JSONObject pushData = needsPushData ? remoteData.getPushData() : null;
+
+        if (pushData != null) {
+            if (!remoteData.containsKey("message")) {
+                remoteData.putString("message", pushData.optString("alert", null));
+            }
+            if (!remoteData.containsKey("title")) {
+                remoteData.putString("title", pushData.optString("title", null));
+            }
+            if (!remoteData.containsKey("sound")) {
+                remoteData.putString("soundName", pushData.optString("sound", null));
+            }
+            if (!remoteData.containsKey("color")) {
+                remoteData.putString("color", pushData.optString("color", null));
+            }
+
+            final int badge = pushData.optInt("badge", -1);
+            if (badge >= 0) {
+                ApplicationBadgeHelper.INSTANCE.setApplicationIconBadgeNumber(application, badge);
+            }
+        }
+
+        HashMap<String, String> messageMap = parseSenderName(remoteData.getString("message"));
+        if (messageMap == null) {
+            return;
+        }
+        remoteData.putString("title", messageMap.get("sender_name"));
+        remoteData.putString("sender", messageMap.get("sender_name"));
+        remoteData.putString("message", messageMap.get("message"));
+        remoteData.putString("sender_id", remoteData.getString("user_id"));
+        remoteData.putInt("date_sent", (int)Math.floor(System.currentTimeMillis() / 1000));
+
+        dispatch(remoteData);
+    }
+
+    /**
+     * Message pushes are de-duplicated by their message_id. Call pushes can reuse the message_id
+     * of the call for later updates, e.g. a hang-up, so only redeliveries of the same FCM message
+     * are dropped for them.
+     */
+    private String getDedupKey(RNPushNotificationRemoteData remoteData, String googleMessageId) {
+        if (remoteData.containsKey("callStart") || remoteData.containsKey("callEnd")) {
+            return googleMessageId;
+        }
+        return remoteData.getString("message_id", googleMessageId);
+    }
+
+    private boolean isDuplicate(String messageId) {
+        if (messageId == null) {
+            return false;
+        }
+        return !recentPushIds.add(messageId);
+    }
+
+    private void dispatch(RNPushNotificationRemoteData remoteData) {
+        boolean isCallPush = remoteData.containsKey("callStart") || remoteData.containsKey("callEnd");
+        boolean isStoryPush = remoteData.containsKey("story_id");
+        boolean isForeground = RNPushNotificationForegroundTracker.getInstance(application).isApplicationInForeground();
+
+        if (isStoryPush && !isForeground) {
+            return;
+        }
+
+        // If notification ID is not provided by the user for push notification, generate one at random
+        if (remoteData.getString("id") == null && !isCallPush) {
+            remoteData.putString("id", String.valueOf(randomNumberGenerator.nextInt()));
+        }
+
+        remoteData.putBoolean("foreground", isForeground);
+        remoteData.putBoolean("userInteraction", false);
+        if (!isCallPush) {
+            remoteData.putString(JSPushNotificationTask.BUNDLE_TASK_NAME_KEY, JSPushNotificationTask.NOTIFY_TASK_KEY);
+        } else if (remoteData.containsKey("callStart")) {
+            remoteData.putString(JSPushNotificationTask.BUNDLE_TASK_NAME_KEY, JSPushNotificationTask.START_CALL_TASK_KEY);
+        } else if (remoteData.containsKey("callEnd")) {
+            remoteData.putString(JSPushNotificationTask.BUNDLE_TASK_NAME_KEY, JSPushNotificationTask.END_CALL_TASK_KEY);
+        }
+
+        if (!isCallPush && !isForeground && isNativeMessageRendering && renderMessageNatively(remoteData)) {
+            remoteData.putBoolean("nativeRendered", true);
+        }
+
+        // The Bundle is only materialised here, once the push is known to be delivered
+        Bundle bundle = remoteData.toBundle();
+        RNPushNotificationWarmUp.getInstance(application).onContextNeeded();
+
+        if (isStoryPush) {
+            postToReactContext(bundle);
+            return;
+        }
+
+        if (!isCallPush) {
+            RNPushNotificationTaskBatcher taskBatcher = RNPushNotificationTaskBatcher.getInstance(application);
+            if (taskBatcher != null) {
+                taskBatcher.add(bundle);
+                return;
+            }
+        }
+
+        // HeadlessJsTaskService creates the React context itself if it is missing,
+        // so the task can be started straight from the worker.
+        Intent service = new Intent(application, JSPushNotificationTask.class);
+        service.putExtras(bundle);
+        application.startService(service);
+    }
+
+    /**
+     * Shows a chat push as a MessagingStyle notification without waiting for the React context.
+     * JS is notified afterwards and may replace it by passing the push, still marked
+     * nativeRendered, to createMessageNotification.
+     */
+    private boolean renderMessageNatively(RNPushNotificationRemoteData remoteData) {
+        String dialogId = remoteData.getString("dialog_id");
+        String messageId = remoteData.getString("message_id");
+        String message = remoteData.getString("message");
+        if (dialogId == null || messageId == null || message == null) {
+            return false;
+        }
+        String dialogName = remoteData.getString("dialog_name");
+
+        Bundle messageBundle = new Bundle();
+        messageBundle.putInt("notificationID", dialogId.hashCode());
+        messageBundle.putString("dialog_id", dialogId);
+        messageBundle.putString("message_id", messageId);
+        messageBundle.putString("message", message);
+        messageBundle.putString("sender", remoteData.getString("sender"));
+        messageBundle.putString("sender_id", remoteData.getString("sender_id"));
+        messageBundle.putString("dialog", dialogName != null ? dialogName : remoteData.getString("title"));
+        messageBundle.putBoolean("is_private", dialogName == null);
+        messageBundle.putString("сhannelType", NotificationChannelManager.CHANNELS.PUSH_MESSAGES.name());
+        RNPushNotificationHelper.getInstance(application).sendToMessagingNotifications(messageBundle);
+        return true;
+    }
+
+    private void postToReactContext(Bundle bundle) {
+        synchronized (pendingLock) {
+            pendingContextBundles.add(bundle);
+            if (drainScheduled) {
+                return;
+            }
+            drainScheduled = true;
+        }
+        // We need to run this on the main thread, as the React code assumes that is true.
+        // Namely, DevServerHelper constructs a Handler() without a Looper, which triggers:
+        // "Can't create handler inside thread that has not called Looper.prepare()"
+        mainHandler.post(drainPendingContextBundles);
+    }
+
+    private void deliverWithReactContext(final List<Bundle> bundles) {
+        if (bundles.isEmpty()) {
+            return;
+        }
+
+        ReactInstanceManager mReactInstanceManager = ((ReactApplication) application).getReactNativeHost().getReactInstanceManager();
+        ReactContext context = mReactInstanceManager.getCurrentReactContext();
+
+        if (context != null) {
+            notifyJs((ReactApplicationContext) context, bundles);
+        } else {
+            // Otherwise wait for construction, then send the notifications
+            mReactInstanceManager.addReactInstanceEventListener(new ReactInstanceManager.ReactInstanceEventListener() {
+                public void onReactContextInitialized(ReactContext context) {
+                    notifyJs((ReactApplicationContext) context, bundles);
+                }
+            });
+            if (!mReactInstanceManager.hasStartedCreatingInitialContext()) {
+                // Construct it in the background
+                mReactInstanceManager.createReactContextInBackground();
+            }
+        }
+    }
+
+    private void notifyJs(ReactApplicationContext context, List<Bundle> bundles) {
+        RNPushNotificationJsDelivery jsDelivery = new RNPushNotificationJsDelivery(context);
+        for (Bundle bundle : bundles) {
+            jsDelivery.notifyNotification(bundle);
+        }
+    }
+
+    private HashMap<String, String> parseSenderName(String message) {
+        if (message == null) {
+            return null;
+        }
+
+        int indexOfSep = message.indexOf(":");
+
+        if (indexOfSep == -1) { return null; }
+
+        HashMap<String, String> messageMap = new HashMap<String, String>();
+
+        String senderName = message.substring(0, indexOfSep);
+        senderName = senderName.replace(" in Private dialog", "");
+        senderName = senderName + ":";
+
+        messageMap.put("sender_name", senderName);
+        messageMap.put("message", message.substring(Math.min(indexOfSep + 2, message.length())));
+
+        return messageMap;
+    }
+}
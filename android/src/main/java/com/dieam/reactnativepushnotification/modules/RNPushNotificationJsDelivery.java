@@ -19,9 +19,11 @@ import java.util.Set;
 
 public class RNPushNotificationJsDelivery {
     private ReactApplicationContext mReactContext;
+    private final boolean isLegacyDataJson;
 
     public RNPushNotificationJsDelivery(ReactApplicationContext reactContext) {
         mReactContext = reactContext;
+        isLegacyDataJson = new RNPushNotificationConfig(reactContext).isLegacyDataJson();
     }
 
     void sendEvent(String eventName, Object params) {
@@ -33,28 +35,37 @@ public class RNPushNotificationJsDelivery {
     }
 
     void notifyRemoteFetch(Bundle bundle) {
-        String bundleString = convertJSON(bundle);
-        WritableMap params = Arguments.createMap();
-        params.putString("dataJSON", bundleString);
-        sendEvent("remoteFetch", params);
+        sendEvent("remoteFetch", toEventParams(bundle));
     }
 
     void notifyNotification(Bundle bundle) {
-        String bundleString = convertJSON(bundle);
-
-        WritableMap params = Arguments.createMap();
-        params.putString("dataJSON", bundleString);
-
-        sendEvent("remoteNotificationReceived", params);
+        RNPushNotificationEventBatcher batcher = RNPushNotificationEventBatcher.getInstance(mReactContext);
+        if (batcher != null) {
+            batcher.add(mReactContext, toEventParams(bundle));
+            return;
+        }
+        sendEvent("remoteNotificationReceived", toEventParams(bundle));
     }
 
     void notifyNotificationAction(Bundle bundle) {
-        String bundleString = convertJSON(bundle);
+        sendEvent("notificationActionReceived", toEventParams(bundle));
+    }
 
+    /**
+     * Converts the bundle straight into the map sent over the bridge. With the legacy_data_json
+     * meta-data set it is wrapped as a {@code dataJSON} string instead, as older JS expects.
+     */
+    WritableMap toEventParams(Bundle bundle) {
+        if (!isLegacyDataJson) {
+            try {
+                return Arguments.fromBundle(bundle);
+            } catch (IllegalArgumentException e) {
+                // A value the bridge cannot carry, the JSON path stringifies it instead
+            }
+        }
         WritableMap params = Arguments.createMap();
-        params.putString("dataJSON", bundleString);
-
-        sendEvent("notificationActionReceived", params);
+        params.putString("dataJSON", convertJSON(bundle));
+        return params;
     }
 
     String convertJSON(Bundle bundle) {
@@ -0,0 +1,102 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.content.BroadcastReceiver;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.util.Log;
+
+import static com.dieam.reactnativepushnotification.modules.RNPushNotification.LOG_TAG;
+
+/**
+ * Resolves the Activity that notifications open once per process.
+ * <p>
+ * The launch_activity meta-data names it directly; otherwise it is looked up through the
+ * package manager on first use. The cached value is dropped when the package is changed or
+ * replaced, e.g. when an activity-alias is enabled to switch the launcher entry.
+ */
+class RNPushNotificationLaunchActivity {
+    private static boolean isResolved = false;
+    private static boolean isReceiverRegistered = false;
+    private static ComponentName component;
+    private static Class activityClass;
+
+    static synchronized Class getActivityClass(Context context) {
+        resolve(context);
+        return activityClass;
+    }
+
+    /**
+     * @return an intent equivalent to the filter of the package's launch intent, or null if the
+     * package has no launch activity
+     */
+    static synchronized Intent getLaunchIntent(Context context) {
+        resolve(context);
+        if (component == null) {
+            return null;
+        }
+        Intent intent = new Intent(Intent.ACTION_MAIN);
+        intent.addCategory(Intent.CATEGORY_LAUNCHER);
+        intent.setComponent(component);
+        return intent;
+    }
+
+    static synchronized void invalidate() {
+        isResolved = false;
+        component = null;
+        activityClass = null;
+    }
+
+    private static void resolve(Context context) {
+        if (isResolved) {
+            return;
+        }
+        Context applicationContext = context.getApplicationContext();
+        registerInvalidationReceiver(applicationContext);
+
+        String packageName = applicationContext.getPackageName();
+        String className = new RNPushNotificationConfig(applicationContext).getLaunchActivity();
+        if (className != null) {
+            if (className.startsWith(".")) {
+                className = packageName + className;
+            }
+            component = new ComponentName(packageName, className);
+        } else {
+            Intent launchIntent = applicationContext.getPackageManager().getLaunchIntentForPackage(packageName);
+            component = launchIntent != null ? launchIntent.getComponent() : null;
+        }
+
+        activityClass = null;
+        if (component != null) {
+            try {
+                activityClass = Class.forName(component.getClassName());
+            } catch (ClassNotFoundException e) {
+                Log.e(LOG_TAG, "Launch activity " + component.getClassName() + " not found", e);
+            }
+        } else {
+            Log.e(LOG_TAG, "No launch activity found for " + packageName);
+        }
+        isResolved = true;
+    }
+
+    private static void registerInvalidationReceiver(Context applicationContext) {
+        if (isReceiverRegistered) {
+            return;
+        }
+        final String packageName = applicationContext.getPackageName();
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        filter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+        filter.addDataScheme("package");
+        applicationContext.registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                if (intent.getData() != null && packageName.equals(intent.getData().getSchemeSpecificPart())) {
+                    invalidate();
+                }
+            }
+        }, filter);
+        isReceiverRegistered = true;
+    }
+}
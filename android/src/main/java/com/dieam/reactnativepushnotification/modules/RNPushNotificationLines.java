@@ -0,0 +1,147 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.os.Bundle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Immutable list of the message lines of one messaging notification.
+ * <p>
+ * Appending returns a new list that shares every existing line with the old one, so a list
+ * handed to a render stays a consistent snapshot while other threads keep appending, at the
+ * cost of one node per line. Lines only hold the fields the MessagingStyle needs.
+ * <p>
+ * Only the newest lines up to a cap are retained, {@link #total} still counts every line that
+ * was appended. Older nodes stay linked behind the retained ones until the chain is twice the
+ * cap, then the retained lines are copied to a new chain, so appending stays O(1) amortized.
+ */
+final class RNPushNotificationLines implements Iterable<RNPushNotificationLines.Line> {
+    static final RNPushNotificationLines EMPTY = new RNPushNotificationLines(null, null, 0, 0, 0);
+
+    static final class Line {
+        final String sender_id;
+        final String sender;
+        final String message_id;
+        final String message;
+
+        Line(String sender_id, String sender, String message_id, String message) {
+            this.sender_id = sender_id;
+            this.sender = sender;
+            this.message_id = message_id;
+            this.message = message;
+        }
+
+        static Line fromBundle(Bundle messageBundle) {
+            return new Line(messageBundle.getString("sender_id"), messageBundle.getString("sender"),
+                    messageBundle.getString("message_id"), messageBundle.getString("message"));
+        }
+    }
+
+    private final Line last;
+    private final RNPushNotificationLines previous;
+    private final int size;
+    private final int total;
+    // Nodes in the chain, including the ones behind the retained lines
+    private final int depth;
+
+    private RNPushNotificationLines(Line last, RNPushNotificationLines previous, int size, int total, int depth) {
+        this.last = last;
+        this.previous = previous;
+        this.size = size;
+        this.total = total;
+        this.depth = depth;
+    }
+
+    /**
+     * @return an empty list whose total already counts lines dropped before, e.g. by a stored log
+     */
+    static RNPushNotificationLines dropped(int count) {
+        return count > 0 ? new RNPushNotificationLines(null, null, 0, count, 0) : EMPTY;
+    }
+
+    /**
+     * @return the number of retained lines
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of lines appended, including the ones no longer retained
+     */
+    int total() {
+        return total;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return a list with the line appended, retaining at most {@code maxLines} of the newest lines
+     */
+    RNPushNotificationLines append(Line line, int maxLines) {
+        int cap = Math.max(1, maxLines);
+        int kept = Math.min(size, cap - 1);
+        if (kept == size || depth < 2 * cap) {
+            return new RNPushNotificationLines(line, this, kept + 1, total + 1, depth + 1);
+        }
+
+        // The chain behind the retained lines is dropped
+        RNPushNotificationLines node = this;
+        Line[] keptLines = new Line[kept];
+        for (int i = kept - 1; i >= 0; i--) {
+            keptLines[i] = node.last;
+            node = node.previous;
+        }
+        RNPushNotificationLines copied = dropped(total - kept);
+        for (Line keptLine : keptLines) {
+            copied = new RNPushNotificationLines(keptLine, copied, copied.size + 1, copied.total + 1, copied.depth + 1);
+        }
+        return new RNPushNotificationLines(line, copied, kept + 1, total + 1, kept + 1);
+    }
+
+    /**
+     * @return a list with the line of the same message_id replaced, or this list if there is none.
+     * Only the lines after the replaced one are copied.
+     */
+    RNPushNotificationLines replace(Line line) {
+        ArrayList<RNPushNotificationLines> following = new ArrayList<>();
+        RNPushNotificationLines node = this;
+        int index = 0;
+        while (index < size && !line.message_id.equals(node.last.message_id)) {
+            following.add(node);
+            node = node.previous;
+            index++;
+        }
+        if (index == size) {
+            return this;
+        }
+        RNPushNotificationLines replaced = new RNPushNotificationLines(line, node.previous, node.size, node.total, node.depth);
+        for (int i = following.size() - 1; i >= 0; i--) {
+            RNPushNotificationLines next = following.get(i);
+            replaced = new RNPushNotificationLines(next.last, replaced, next.size, next.total, next.depth);
+        }
+        return replaced;
+    }
+
+    /**
+     * @return the lines, oldest first
+     */
+    Line[] toArray() {
+        Line[] lines = new Line[size];
+        RNPushNotificationLines node = this;
+        for (int i = size - 1; i >= 0; i--) {
+            lines[i] = node.last;
+            node = node.previous;
+        }
+        return lines;
+    }
+
+    @Override
+    public Iterator<Line> iterator() {
+        return Arrays.asList(toArray()).iterator();
+    }
+}
@@ -1,12 +1,9 @@
 package com.dieam.reactnativepushnotification.modules;
 
-import android.app.ActivityManager;
-import android.app.ActivityManager.RunningAppProcessInfo;
 import android.app.Application;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
-import android.util.Log;
 
 import com.dieam.reactnativepushnotification.helpers.ApplicationBadgeHelper;
 import com.facebook.react.ReactApplication;
@@ -17,11 +14,8 @@ import com.google.android.gms.gcm.GcmListenerService;
 
 import org.json.JSONObject;
 
-import java.util.List;
 import java.util.Random;
 
-import static com.dieam.reactnativepushnotification.modules.RNPushNotification.LOG_TAG;
-
 public class RNPushNotificationListenerServiceGcm extends GcmListenerService {
 
     @Override
@@ -52,7 +46,7 @@ public class RNPushNotificationListenerServiceGcm extends GcmListenerService {
             }
         }
 
-        Log.v(LOG_TAG, "onMessageReceived: " + bundle);
+        RNPushNotificationLog.v("onMessageReceived: ", bundle);
 
         // We need to run this on the main thread, as the React code assumes that is true.
         // Namely, DevServerHelper constructs a Handler() without a Looper, which triggers:
@@ -98,7 +92,7 @@ public class RNPushNotificationListenerServiceGcm extends GcmListenerService {
             bundle.putString("id", String.valueOf(randomNumberGenerator.nextInt()));
         }
 
-        Boolean isForeground = isApplicationInForeground();
+        Boolean isForeground = RNPushNotificationForegroundTracker.getInstance(this).isApplicationInForeground();
 
 //        RNPushNotificationJsDelivery jsDelivery = new RNPushNotificationJsDelivery(context);
 //        bundle.putBoolean("foreground", isForeground);
@@ -110,29 +104,12 @@ public class RNPushNotificationListenerServiceGcm extends GcmListenerService {
 //            jsDelivery.notifyRemoteFetch(bundle);
 //        }
 
-        Log.v(LOG_TAG, "sendNotification: " + bundle);
+        RNPushNotificationLog.v("sendNotification: ", bundle);
 
         if (!isForeground) {
             Application applicationContext = (Application) context.getApplicationContext();
-            RNPushNotificationHelper pushNotificationHelper = new RNPushNotificationHelper(applicationContext);
+            RNPushNotificationHelper pushNotificationHelper = RNPushNotificationHelper.getInstance(applicationContext);
             pushNotificationHelper.sendToNotificationCentre(bundle);
         }
     }
-
-    private boolean isApplicationInForeground() {
-        ActivityManager activityManager = (ActivityManager) this.getSystemService(ACTIVITY_SERVICE);
-        List<RunningAppProcessInfo> processInfos = activityManager.getRunningAppProcesses();
-        if (processInfos != null) {
-            for (RunningAppProcessInfo processInfo : processInfos) {
-                if (processInfo.processName.equals(getApplication().getPackageName())) {
-                    if (processInfo.importance == RunningAppProcessInfo.IMPORTANCE_FOREGROUND) {
-                        for (String d : processInfo.pkgList) {
-                            return true;
-                        }
-                    }
-                }
-            }
-        }
-        return false;
-    }
 }
@@ -0,0 +1,104 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.dieam.reactnativepushnotification.BuildConfig;
+
+import static com.dieam.reactnativepushnotification.modules.RNPushNotification.LOG_TAG;
+
+/**
+ * Level gated logging for the notification paths.
+ * <p>
+ * A disabled call costs a field read and allocates nothing: the message parts are passed
+ * separately and only concatenated, and payloads only formatted, once the level is known to be
+ * logged. Verbose logging, which dumps whole payloads, is compiled out of release builds. The
+ * runtime level comes from the log_level meta-data, or from {@code adb shell setprop
+ * log.tag.RNPushNotification}.
+ */
+class RNPushNotificationLog {
+    // Constant, so verbose calls are removed from release builds
+    private static final boolean VERBOSE_BUILD = BuildConfig.DEBUG;
+
+    private static volatile int minLevel = Log.INFO;
+
+    /**
+     * Builds a log message only when it is going to be logged. Implementations should be
+     * constants, or created after checking {@link #isLoggable(int)}, to stay allocation free.
+     */
+    interface Message {
+        String get();
+    }
+
+    static void init(Context context) {
+        int level = new RNPushNotificationConfig(context).getLogLevel();
+        for (int priority = Log.VERBOSE; priority < level; priority++) {
+            if (Log.isLoggable(LOG_TAG, priority)) {
+                level = priority;
+                break;
+            }
+        }
+        minLevel = level;
+    }
+
+    static boolean isLoggable(int priority) {
+        if (priority <= Log.VERBOSE && !VERBOSE_BUILD) {
+            return false;
+        }
+        return priority >= minLevel;
+    }
+
+    static void v(String message, Object value) {
+        if (VERBOSE_BUILD && isLoggable(Log.VERBOSE)) {
+            Log.v(LOG_TAG, message + value);
+        }
+    }
+
+    static void v(Message message) {
+        if (VERBOSE_BUILD && isLoggable(Log.VERBOSE)) {
+            Log.v(LOG_TAG, message.get());
+        }
+    }
+
+    static void d(String message) {
+        if (isLoggable(Log.DEBUG)) {
+            Log.d(LOG_TAG, message);
+        }
+    }
+
+    static void d(String message, Object value) {
+        if (isLoggable(Log.DEBUG)) {
+            Log.d(LOG_TAG, message + value);
+        }
+    }
+
+    static void d(String message, long value) {
+        if (isLoggable(Log.DEBUG)) {
+            Log.d(LOG_TAG, message + value);
+        }
+    }
+
+    static void d(String message, long value, long otherValue) {
+        if (isLoggable(Log.DEBUG)) {
+            Log.d(LOG_TAG, message + value + " " + otherValue);
+        }
+    }
+
+    static void d(String message, Object value, long otherValue) {
+        if (isLoggable(Log.DEBUG)) {
+            Log.d(LOG_TAG, message + value + " " + otherValue);
+        }
+    }
+
+    static void d(String message, Object value, Object otherValue) {
+        if (isLoggable(Log.DEBUG)) {
+            Log.d(LOG_TAG, message + value + " " + otherValue);
+        }
+    }
+
+    static void d(Message message) {
+        if (isLoggable(Log.DEBUG)) {
+            Log.d(LOG_TAG, message.get());
+        }
+    }
+}
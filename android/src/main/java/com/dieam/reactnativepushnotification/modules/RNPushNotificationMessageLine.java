@@ -2,60 +2,189 @@ package com.dieam.reactnativepushnotification.modules;
 
 import android.os.Bundle;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Message lines of the messaging notifications, safe to use from any thread.
+ * <p>
+ * Each notification maps to an immutable {@link RNPushNotificationLines}. Writers replace it
+ * under the lock of the notification's stripe, so receivers, React method threads and the ingest
+ * worker updating different notifications do not contend. Readers take the current list without
+ * locking; it is a consistent snapshot that later updates never change.
+ * <p>
+ * Only the newest lines within the messaging history window are retained per notification,
+ * older ones are dropped from memory and from the store but still counted by
+ * {@link RNPushNotificationLines#total()}.
+ */
 public class RNPushNotificationMessageLine {
-    public static HashMap<String, ArrayList<Bundle>> notificationsIDLines = new HashMap<>();
-    public static HashSet<String> receivedMessagesIds = new HashSet<>();
+    private static final int RECEIVED_MESSAGES_CAPACITY = 4096;
+    private static final long RECEIVED_MESSAGES_TTL = 24 * 60 * 60 * 1000L;
+    private static final String STORE_KEY_PREFIX = "line-";
+    private static final int LOCK_STRIPES = 16;
+    private static final int DEFAULT_MAX_LINES = 25;
 
-    public static ArrayList<Bundle> addLineToNotification(int notificationID, Bundle messageBundle) {
+    private static final ConcurrentHashMap<String, RNPushNotificationLines> notificationsIDLines = new ConcurrentHashMap<>();
+    private static final Object[] locks = new Object[LOCK_STRIPES];
+    static final RNPushNotificationDedupIndex receivedMessagesIds =
+            new RNPushNotificationDedupIndex(RECEIVED_MESSAGES_CAPACITY, RECEIVED_MESSAGES_TTL);
+
+    private static volatile RNPushNotificationMessageStore store;
+    private static volatile int maxLines = DEFAULT_MAX_LINES;
+
+    static {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Persists lines so a conversation survives the process being killed between pushes.
+     * Lines of a notification are read back lazily the first time it is touched.
+     */
+    static void attachStore(RNPushNotificationMessageStore messageStore) {
+        store = messageStore;
+    }
+
+    /**
+     * Number of newest lines retained per notification, e.g. the messaging history window.
+     */
+    static void setMaxLines(int maxLinesPerNotification) {
+        maxLines = Math.max(1, maxLinesPerNotification);
+    }
+
+    /**
+     * Adds a line unless its message_id was already received; the check and the add are atomic.
+     *
+     * @return the notification's lines including the new one, or null if it was a duplicate
+     */
+    static RNPushNotificationLines addLineToNotification(int notificationID, Bundle messageBundle) {
+        return addLineToNotification(notificationID, RNPushNotificationLines.Line.fromBundle(messageBundle));
+    }
+
+    static RNPushNotificationLines addLineToNotification(int notificationID, RNPushNotificationLines.Line line) {
         String notificationIDKey = String.valueOf(notificationID);
-        if (!notificationsIDLines.containsKey(notificationIDKey)) {
-            ArrayList<Bundle> lines = new ArrayList<>();
+
+        synchronized (lockFor(notificationID)) {
+            RNPushNotificationLines currentMessagesLines = loadLines(notificationIDKey);
+            if (line.message_id != null && !receivedMessagesIds.add(line.message_id)) return null;
+
+            RNPushNotificationLines lines = currentMessagesLines.append(line, maxLines);
             notificationsIDLines.put(notificationIDKey, lines);
+            if (store != null) {
+                store.append(STORE_KEY_PREFIX + notificationIDKey, new RNPushNotificationMessage(notificationID,
+                        line.sender_id, line.sender, line.message_id, line.message));
+                dropFromStore(notificationIDKey, currentMessagesLines, lines);
+            }
+            return lines;
         }
+    }
 
-        String message_id = messageBundle.getString("message_id");
-        if (receivedMessagesIds.contains(message_id)) return notificationsIDLines.get(notificationIDKey);
-
-        receivedMessagesIds.add(message_id);
+    /**
+     * Replaces the line with the same message_id, e.g. when JS enriches a message that was
+     * rendered natively. Only the in-memory line is replaced, the stored fields stay the same.
+     *
+     * @return false if the notification has no such line
+     */
+    public static boolean replaceLine(int notificationID, Bundle messageBundle) {
+        return replaceLine(notificationID, RNPushNotificationLines.Line.fromBundle(messageBundle));
+    }
 
-        ArrayList<Bundle> currentMessagesLines = notificationsIDLines.get(notificationIDKey);
-        currentMessagesLines.add(messageBundle);
-        return currentMessagesLines;
+    static boolean replaceLine(int notificationID, RNPushNotificationLines.Line line) {
+        String notificationIDKey = String.valueOf(notificationID);
+        synchronized (lockFor(notificationID)) {
+            RNPushNotificationLines currentMessagesLines = loadLines(notificationIDKey);
+            RNPushNotificationLines lines = currentMessagesLines.replace(line);
+            if (lines == currentMessagesLines) {
+                return false;
+            }
+            notificationsIDLines.put(notificationIDKey, lines);
+            return true;
+        }
     }
 
     public static boolean isReceived(String message_id) {
-        return receivedMessagesIds.contains(message_id);
+        return message_id != null && receivedMessagesIds.contains(message_id);
     }
 
-    public static ArrayList<Bundle> getAllMessage(int notificationID) {
-        return notificationsIDLines.get(String.valueOf(notificationID));
+    static RNPushNotificationLines getAllMessage(int notificationID) {
+        String notificationIDKey = String.valueOf(notificationID);
+        RNPushNotificationLines lines = notificationsIDLines.get(notificationIDKey);
+        if (lines != null) {
+            return lines;
+        }
+        synchronized (lockFor(notificationID)) {
+            return loadLines(notificationIDKey);
+        }
     }
 
     public static void clear(int notificationID) {
         String notificationIDKey = String.valueOf(notificationID);
-        if (notificationsIDLines.containsKey(notificationIDKey)) {
-//            ArrayList<Bundle> messagesBundles = notificationsIDLines.get(notificationIDKey);
-//            if (messagesBundles != null) {
-//                for(Bundle messageBundle : messagesBundles) {
-//                    String message_id = messageBundle.getString("message_id");
-//                    if (message_id != null) {
-//                        receivedMessagesIds.remove(message_id);
-//                        Log.d("[notif][clear]:", message_id);
-//                    }
-//                }
-//            }
-            notificationsIDLines.get(notificationIDKey).clear();
+        synchronized (lockFor(notificationID)) {
+            // Keep an empty entry so the cleared lines are not read back from disk
+            notificationsIDLines.put(notificationIDKey, RNPushNotificationLines.EMPTY);
+            if (store != null) {
+                store.clear(STORE_KEY_PREFIX + notificationIDKey);
+            }
         }
     }
 
     public static void clearAll() {
-       Set<String> notificationIDs = notificationsIDLines.keySet();
-       for(String notificationIDKey : notificationIDs)
-           notificationsIDLines.get(notificationIDKey).clear();
+        if (store != null) {
+            for (String key : store.keys(STORE_KEY_PREFIX)) {
+                clear(Integer.parseInt(key.substring(STORE_KEY_PREFIX.length())));
+            }
+        }
+        for (String notificationIDKey : notificationsIDLines.keySet()) {
+            clear(Integer.parseInt(notificationIDKey));
+        }
+    }
+
+    private static Object lockFor(int notificationID) {
+        return locks[(notificationID & 0x7fffffff) % LOCK_STRIPES];
+    }
+
+    // Callers hold the notification's stripe lock
+    private static RNPushNotificationLines loadLines(String notificationIDKey) {
+        RNPushNotificationLines lines = notificationsIDLines.get(notificationIDKey);
+        if (lines != null) {
+            return lines;
+        }
+
+        lines = RNPushNotificationLines.EMPTY;
+        if (store != null) {
+            String storeKey = STORE_KEY_PREFIX + notificationIDKey;
+            RNPushNotificationMessageStore.StoredLines stored = store.readLines(storeKey);
+            lines = RNPushNotificationLines.dropped(stored.dropped);
+            for (RNPushNotificationMessage message : stored.messages) {
+                lines = lines.append(new RNPushNotificationLines.Line(message.sender_id, message.sender,
+                        message.message_id, message.message), maxLines);
+                if (message.message_id != null) {
+                    receivedMessagesIds.restore(message.message_id);
+                }
+            }
+            // The cap may have been lowered since the lines were stored
+            for (int i = 0; i < stored.messages.size() - lines.size(); i++) {
+                String message_id = stored.messages.get(i).message_id;
+                if (message_id != null) {
+                    store.drop(storeKey, message_id, lines.size());
+                }
+            }
+        }
+        notificationsIDLines.put(notificationIDKey, lines);
+        return lines;
+    }
+
+    // Drops the oldest lines of before that the append left behind from the stored log
+    private static void dropFromStore(String notificationIDKey, RNPushNotificationLines before, RNPushNotificationLines after) {
+        int dropped = before.size() + 1 - after.size();
+        if (dropped <= 0) {
+            return;
+        }
+        RNPushNotificationLines.Line[] beforeLines = before.toArray();
+        for (int i = 0; i < dropped; i++) {
+            if (beforeLines[i].message_id != null) {
+                store.drop(STORE_KEY_PREFIX + notificationIDKey, beforeLines[i].message_id, after.size());
+            }
+        }
     }
 }
@@ -0,0 +1,529 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.util.Log;
+
+import androidx.core.util.AtomicFile;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.CRC32;
+
+import static com.dieam.reactnativepushnotification.modules.RNPushNotification.LOG_TAG;
+
+/**
+ * Append-only on-disk log of notification message lines, one file per key.
+ * <p>
+ * Every add/remove is appended as a length-prefixed, CRC-checked record so a process killed
+ * mid-write loses at most the record being written. A log is rewritten atomically from its
+ * live lines once it holds more than twice as many records as lines, checked on every remove and
+ * every {@value #COMPACTION_APPEND_INTERVAL} appends. Lines dropped to stay within a cap are
+ * removed the same way, and the log keeps counting them across compactions.
+ * <p>
+ * All file IO runs on a serial worker: writes are queued and return at once, reads wait for the
+ * writes queued before them. A read blocks its caller, so lazy loads must not run on the main
+ * thread. Receivers do their work on a background thread and finish their broadcast with
+ * {@link #flush}, so the process is not killed before their writes land.
+ */
+class RNPushNotificationMessageStore {
+    private static final String DIRECTORY = "rn_push_notification_messages";
+    private static final String FILE_EXTENSION = ".log";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final byte OP_ADD = 1;
+    private static final byte OP_REMOVE = 2;
+    private static final byte OP_DROP = 3;
+    private static final byte OP_DROPPED = 4;
+
+    private static final int COMPACTION_MIN_RECORDS = 32;
+    private static final int COMPACTION_APPEND_INTERVAL = 256;
+    private static final int MAX_RECORD_SIZE = 1024 * 1024;
+
+    private static RNPushNotificationMessageStore instance;
+
+    private final File directory;
+    // Number of records currently in each log, how many of them are live lines, the appends since
+    // the live lines were last counted, and the lines dropped from it. Only used on the worker.
+    private final HashMap<String, int[]> recordCounts = new HashMap<>();
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "RNPushNotificationMessageStore");
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        }
+    });
+
+    static final class StoredLines {
+        final ArrayList<RNPushNotificationMessage> messages;
+        final int dropped;
+
+        StoredLines(ArrayList<RNPushNotificationMessage> messages, int dropped) {
+            this.messages = messages;
+            this.dropped = dropped;
+        }
+    }
+
+    private RNPushNotificationMessageStore(Context context) {
+        this.directory = new File(context.getFilesDir(), DIRECTORY);
+    }
+
+    static synchronized RNPushNotificationMessageStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new RNPushNotificationMessageStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    ArrayList<RNPushNotificationMessage> read(final String key) {
+        return await(new Callable<ArrayList<RNPushNotificationMessage>>() {
+            @Override
+            public ArrayList<RNPushNotificationMessage> call() {
+                return readLog(key);
+            }
+        }, new ArrayList<RNPushNotificationMessage>());
+    }
+
+    /**
+     * @return the stored lines of the key, and how many lines were dropped from it before
+     */
+    StoredLines readLines(final String key) {
+        return await(new Callable<StoredLines>() {
+            @Override
+            public StoredLines call() {
+                ArrayList<RNPushNotificationMessage> messages = readLog(key);
+                return new StoredLines(messages, countsFor(key)[3]);
+            }
+        }, new StoredLines(new ArrayList<RNPushNotificationMessage>(), 0));
+    }
+
+    void append(final String key, final RNPushNotificationMessage message) {
+        worker.execute(new Runnable() {
+            @Override
+            public void run() {
+                appendLog(key, message);
+            }
+        });
+    }
+
+    void remove(final String key, final String messageId, final int remainingLines) {
+        worker.execute(new Runnable() {
+            @Override
+            public void run() {
+                removeLog(key, OP_REMOVE, messageId, remainingLines);
+            }
+        });
+    }
+
+    /**
+     * Removes a line that was dropped to stay within a cap, it is still counted by
+     * {@link #readLines}.
+     */
+    void drop(final String key, final String messageId, final int remainingLines) {
+        worker.execute(new Runnable() {
+            @Override
+            public void run() {
+                removeLog(key, OP_DROP, messageId, remainingLines);
+            }
+        });
+    }
+
+    void clear(final String key) {
+        worker.execute(new Runnable() {
+            @Override
+            public void run() {
+                clearLog(key);
+            }
+        });
+    }
+
+    void clearAll(final String keyPrefix) {
+        worker.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (String key : listKeys(keyPrefix)) {
+                    clearLog(key);
+                }
+            }
+        });
+    }
+
+    /**
+     * @return the stored keys with the prefix, least recently written first
+     */
+    ArrayList<String> keys(final String keyPrefix) {
+        return await(new Callable<ArrayList<String>>() {
+            @Override
+            public ArrayList<String> call() {
+                return listKeys(keyPrefix);
+            }
+        }, new ArrayList<String>());
+    }
+
+    /**
+     * Finishes the broadcast once every write queued so far has landed.
+     */
+    void flush(final BroadcastReceiver.PendingResult pendingResult) {
+        worker.execute(new Runnable() {
+            @Override
+            public void run() {
+                pendingResult.finish();
+            }
+        });
+    }
+
+    private <T> T await(Callable<T> task, T fallback) {
+        try {
+            return worker.submit(task).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return fallback;
+        } catch (ExecutionException e) {
+            Log.w(LOG_TAG, "Problem reading stored message lines", e.getCause());
+            return fallback;
+        }
+    }
+
+    private ArrayList<RNPushNotificationMessage> readLog(String key) {
+        LinkedHashMap<String, RNPushNotificationMessage> lines = new LinkedHashMap<>();
+        int records = 0;
+        int dropped = 0;
+        boolean corrupted = false;
+
+        AtomicFile file = fileFor(key);
+        FileInputStream fileStream = null;
+        try {
+            fileStream = file.openRead();
+            DataInputStream input = new DataInputStream(new BufferedInputStream(fileStream));
+            while (true) {
+                byte[] payload;
+                try {
+                    payload = readRecord(input);
+                } catch (EOFException e) {
+                    break;
+                }
+                if (payload == null) {
+                    corrupted = true;
+                    break;
+                }
+                dropped += apply(lines, payload);
+                records++;
+            }
+        } catch (FileNotFoundException e) {
+            // Nothing stored for this key yet
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Problem reading stored message lines for " + key, e);
+            corrupted = true;
+        } finally {
+            closeQuietly(fileStream);
+        }
+
+        ArrayList<RNPushNotificationMessage> messages = new ArrayList<>(lines.values());
+        recordCounts.put(key, new int[]{records, messages.size(), 0, dropped});
+
+        if (corrupted) {
+            // Drop the torn tail so later appends follow a valid record
+            rewrite(key, messages);
+        }
+        return messages;
+    }
+
+    private void appendLog(String key, RNPushNotificationMessage message) {
+        if (!recordCounts.containsKey(key)) {
+            // Replays the log first, which also restores an interrupted compaction
+            readLog(key);
+        }
+        byte[] payload;
+        try {
+            payload = encodeAdd(message);
+        } catch (IOException e) {
+            return;
+        }
+        if (appendRecord(key, payload)) {
+            int[] counts = countsFor(key);
+            counts[0]++;
+            counts[1]++;
+            // Replaced and trimmed lines are not known here, so the live lines are counted again
+            if (++counts[2] >= COMPACTION_APPEND_INTERVAL) {
+                compact(key, readLog(key));
+            }
+        }
+    }
+
+    private void removeLog(String key, byte op, String messageId, int remainingLines) {
+        if (!recordCounts.containsKey(key)) {
+            readLog(key);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream payload = new DataOutputStream(bytes);
+        try {
+            payload.writeByte(op);
+            writeString(payload, messageId);
+        } catch (IOException e) {
+            return;
+        }
+        if (appendRecord(key, bytes.toByteArray())) {
+            int[] counts = countsFor(key);
+            counts[0]++;
+            counts[1] = remainingLines;
+            if (op == OP_DROP) {
+                counts[3]++;
+            }
+            if (counts[0] > COMPACTION_MIN_RECORDS && counts[0] > 2 * counts[1]) {
+                compact(key, readLog(key));
+            }
+        }
+    }
+
+    // Rewrites the log if most of its records are dead, the counts come from a fresh readLog
+    private void compact(String key, ArrayList<RNPushNotificationMessage> messages) {
+        int[] counts = countsFor(key);
+        if (counts[0] > COMPACTION_MIN_RECORDS && counts[0] > 2 * messages.size()) {
+            rewrite(key, messages);
+        }
+    }
+
+    private void clearLog(String key) {
+        fileFor(key).delete();
+        recordCounts.remove(key);
+    }
+
+    private ArrayList<String> listKeys(String keyPrefix) {
+        ArrayList<String> keys = new ArrayList<>();
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return keys;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File first, File second) {
+                long firstModified = first.lastModified();
+                long secondModified = second.lastModified();
+                return firstModified < secondModified ? -1 : (firstModified == secondModified ? 0 : 1);
+            }
+        });
+        for (File file : files) {
+            String name = file.getName();
+            if (!name.endsWith(FILE_EXTENSION)) {
+                continue;
+            }
+            String key = decodeKey(name.substring(0, name.length() - FILE_EXTENSION.length()));
+            if (key != null && key.startsWith(keyPrefix)) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    private void rewrite(String key, ArrayList<RNPushNotificationMessage> messages) {
+        if (messages.isEmpty()) {
+            clearLog(key);
+            return;
+        }
+
+        int dropped = countsFor(key)[3];
+        AtomicFile file = fileFor(key);
+        FileOutputStream output = null;
+        try {
+            output = file.startWrite();
+            DataOutputStream data = new DataOutputStream(output);
+            if (dropped > 0) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream payload = new DataOutputStream(bytes);
+                payload.writeByte(OP_DROPPED);
+                payload.writeInt(dropped);
+                writeRecord(data, bytes.toByteArray());
+            }
+            for (RNPushNotificationMessage message : messages) {
+                writeRecord(data, encodeAdd(message));
+            }
+            data.flush();
+            file.finishWrite(output);
+            int records = messages.size() + (dropped > 0 ? 1 : 0);
+            recordCounts.put(key, new int[]{records, messages.size(), 0, dropped});
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Problem compacting stored message lines for " + key, e);
+            if (output != null) {
+                file.failWrite(output);
+            }
+        }
+    }
+
+    private boolean appendRecord(String key, byte[] payload) {
+        if (!directory.exists() && !directory.mkdirs()) {
+            Log.w(LOG_TAG, "Unable to create message store directory " + directory);
+            return false;
+        }
+
+        FileOutputStream output = null;
+        try {
+            output = new FileOutputStream(fileFor(key).getBaseFile(), true);
+            DataOutputStream data = new DataOutputStream(output);
+            writeRecord(data, payload);
+            data.flush();
+            return true;
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Problem appending message line for " + key, e);
+            return false;
+        } finally {
+            closeQuietly(output);
+        }
+    }
+
+    // Returns the number of dropped lines the record adds
+    private int apply(LinkedHashMap<String, RNPushNotificationMessage> lines, byte[] bytes) throws IOException {
+        DataInputStream payload = new DataInputStream(new ByteArrayInputStream(bytes));
+        byte op = payload.readByte();
+        if (op == OP_ADD) {
+            int notificationID = payload.readInt();
+            String senderId = readString(payload);
+            String sender = readString(payload);
+            String messageId = readString(payload);
+            String message = readString(payload);
+            String lineKey = messageId != null ? messageId : "#" + lines.size();
+            lines.put(lineKey, new RNPushNotificationMessage(notificationID, senderId, sender, messageId, message));
+        } else if (op == OP_REMOVE || op == OP_DROP) {
+            String messageId = readString(payload);
+            if (messageId != null && lines.remove(messageId) != null && op == OP_DROP) {
+                return 1;
+            }
+        } else if (op == OP_DROPPED) {
+            return payload.readInt();
+        }
+        return 0;
+    }
+
+    private int[] countsFor(String key) {
+        int[] counts = recordCounts.get(key);
+        if (counts == null) {
+            counts = new int[]{0, 0, 0, 0};
+            recordCounts.put(key, counts);
+        }
+        return counts;
+    }
+
+    private AtomicFile fileFor(String key) {
+        return new AtomicFile(new File(directory, encodeKey(key) + FILE_EXTENSION));
+    }
+
+    private static byte[] encodeAdd(RNPushNotificationMessage message) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream payload = new DataOutputStream(bytes);
+        payload.writeByte(OP_ADD);
+        payload.writeInt(message.notificationID);
+        writeString(payload, message.sender_id);
+        writeString(payload, message.sender);
+        writeString(payload, message.message_id);
+        writeString(payload, message.message);
+        return bytes.toByteArray();
+    }
+
+    private static void writeRecord(DataOutputStream output, byte[] payload) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        output.writeInt(payload.length);
+        output.writeInt((int) crc.getValue());
+        output.write(payload);
+    }
+
+    /**
+     * @return the record payload, or null if the record is torn or corrupted
+     */
+    private static byte[] readRecord(DataInputStream input) throws IOException {
+        int length = input.readInt();
+        if (length < 0 || length > MAX_RECORD_SIZE) {
+            return null;
+        }
+        int checksum;
+        byte[] payload = new byte[length];
+        try {
+            checksum = input.readInt();
+            input.readFully(payload);
+        } catch (EOFException e) {
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue() == checksum ? payload : null;
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        if (value == null) {
+            output.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        int length = input.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    // Keys are hex encoded so any dialog ID is a valid file name
+    private static String encodeKey(String key) {
+        byte[] bytes = key.getBytes(UTF_8);
+        StringBuilder encoded = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            encoded.append(Character.forDigit((b >> 4) & 0xF, 16));
+            encoded.append(Character.forDigit(b & 0xF, 16));
+        }
+        return encoded.toString();
+    }
+
+    private static String decodeKey(String encoded) {
+        if (encoded.length() % 2 != 0) {
+            return null;
+        }
+        byte[] bytes = new byte[encoded.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = Character.digit(encoded.charAt(i * 2), 16);
+            int low = Character.digit(encoded.charAt(i * 2 + 1), 16);
+            if (high == -1 || low == -1) {
+                return null;
+            }
+            bytes[i] = (byte) ((high << 4) | low);
+        }
+        return new String(bytes, UTF_8);
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // Ignored
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package com.dieam.reactnativepushnotification.modules;
 
-import android.app.Application;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
@@ -13,14 +12,23 @@ public class RNPushNotificationPublisher extends BroadcastReceiver {
 
     @Override
     public void onReceive(Context context, Intent intent) {
+        RNPushNotificationScheduler scheduler = RNPushNotificationScheduler.getInstance(context);
+
+        if (RNPushNotificationScheduler.ACTION_DRAIN.equals(intent.getAction())) {
+            scheduler.drain(goAsync());
+            return;
+        }
+        if (RNPushNotificationScheduler.ACTION_WARM_UP.equals(intent.getAction())) {
+            RNPushNotificationWarmUp.getInstance(context).warmUp(RNPushNotificationWarmUp.TRIGGER_ALARM);
+            return;
+        }
+
+        // Alarm registered per notification before the scheduler kept a single alarm
         int id = intent.getIntExtra(NOTIFICATION_ID, 0);
         long currentTime = System.currentTimeMillis();
 
         Log.i(LOG_TAG, "NotificationPublisher: Prepare To Publish: " + id + ", Now Time: " + currentTime);
 
-        Application applicationContext = (Application) context.getApplicationContext();
-
-        new RNPushNotificationHelper(applicationContext)
-                .sendToNotificationCentre(intent.getExtras());
+        scheduler.publishLegacy(intent.getStringExtra("id"), intent.getExtras(), goAsync());
     }
 }
@@ -0,0 +1,89 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.os.Bundle;
+
+import org.json.JSONObject;
+
+import java.util.Map;
+
+/**
+ * Read-through view of an FCM data map used while a push is routed.
+ * <p>
+ * Lookups go straight to the data map and only the fields the routing sets are held
+ * separately, so pushes that are dropped or filtered never copy their payload. The nested
+ * {@code data} JSON is parsed on first use, and the Bundle for headless JS is built once at
+ * hand-off by {@link #toBundle()}.
+ */
+class RNPushNotificationRemoteData {
+    private final Map<String, String> data;
+    private final Bundle overrides = new Bundle();
+    private JSONObject pushData;
+    private boolean isPushDataParsed = false;
+
+    RNPushNotificationRemoteData(Map<String, String> data) {
+        this.data = data;
+    }
+
+    boolean containsKey(String key) {
+        return overrides.containsKey(key) || data.containsKey(key);
+    }
+
+    String getString(String key) {
+        if (overrides.containsKey(key)) {
+            return overrides.getString(key);
+        }
+        return data.get(key);
+    }
+
+    String getString(String key, String defaultValue) {
+        String value = getString(key);
+        return value != null ? value : defaultValue;
+    }
+
+    void putString(String key, String value) {
+        overrides.putString(key, value);
+    }
+
+    void putBoolean(String key, boolean value) {
+        overrides.putBoolean(key, value);
+    }
+
+    void putInt(String key, int value) {
+        overrides.putInt(key, value);
+    }
+
+    /**
+     * @return the parsed {@code data} field, or null if it is missing or not valid JSON
+     */
+    JSONObject getPushData() {
+        if (!isPushDataParsed) {
+            isPushDataParsed = true;
+            String dataString = data.get("data");
+            if (dataString != null) {
+                try {
+                    pushData = new JSONObject(dataString);
+                } catch (Exception e) {
+                    pushData = null;
+                }
+            }
+        }
+        return pushData;
+    }
+
+    /**
+     * @return true if the raw {@code data} field mentions the key, without parsing it
+     */
+    boolean pushDataMayContain(String key) {
+        String dataString = data.get("data");
+        return dataString != null && dataString.contains("\"" + key + "\"");
+    }
+
+    Bundle toBundle() {
+        Bundle bundle = new Bundle(data.size() + overrides.size());
+        for (Map.Entry<String, String> entry : data.entrySet()) {
+            bundle.putString(entry.getKey(), entry.getValue());
+        }
+        bundle.putAll(overrides);
+        return bundle;
+    }
+}
@@ -0,0 +1,102 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.SparseArray;
+
+import static com.dieam.reactnativepushnotification.modules.RNPushNotification.LOG_TAG;
+
+/**
+ * Debounces notification renders per notification ID.
+ * <p>
+ * Every update re-arms a short window; when the window elapses without further updates the
+ * notification is built once from its current state. A burst that never goes quiet is still
+ * rendered at least every {@code maxDelay} ms, and the render always reads the latest state,
+ * so the last update is never lost.
+ */
+class RNPushNotificationRenderCoalescer {
+
+    interface Renderer {
+        void render(int notificationID, Bundle latestBundle);
+    }
+
+    private final long window;
+    private final long maxDelay;
+    private final Handler handler;
+    private final SparseArray<PendingRender> pending = new SparseArray<>();
+
+    private class PendingRender implements Runnable {
+        final int notificationID;
+        final long firstScheduledAt;
+        Bundle latestBundle;
+        Renderer renderer;
+
+        PendingRender(int notificationID, long firstScheduledAt) {
+            this.notificationID = notificationID;
+            this.firstScheduledAt = firstScheduledAt;
+        }
+
+        @Override
+        public void run() {
+            Bundle bundle;
+            Renderer currentRenderer;
+            synchronized (RNPushNotificationRenderCoalescer.this) {
+                if (pending.get(notificationID) != this) {
+                    return;
+                }
+                pending.remove(notificationID);
+                bundle = latestBundle;
+                currentRenderer = renderer;
+            }
+            try {
+                currentRenderer.render(notificationID, bundle);
+            } catch (Exception e) {
+                Log.e(LOG_TAG, "failed to render coalesced notification " + notificationID, e);
+            }
+        }
+    }
+
+    RNPushNotificationRenderCoalescer(long window, long maxDelay) {
+        this.window = window;
+        this.maxDelay = Math.max(window, maxDelay);
+        HandlerThread thread = new HandlerThread("RNPushNotificationRender");
+        thread.start();
+        this.handler = new Handler(thread.getLooper());
+    }
+
+    void submit(int notificationID, Bundle bundle, Renderer renderer) {
+        if (window <= 0) {
+            renderer.render(notificationID, bundle);
+            return;
+        }
+
+        long now = SystemClock.uptimeMillis();
+        synchronized (this) {
+            PendingRender render = pending.get(notificationID);
+            if (render == null) {
+                render = new PendingRender(notificationID, now);
+                pending.put(notificationID, render);
+            } else {
+                handler.removeCallbacks(render);
+            }
+            render.latestBundle = bundle;
+            render.renderer = renderer;
+
+            long deadline = render.firstScheduledAt + maxDelay;
+            handler.postAtTime(render, Math.min(now + window, deadline));
+        }
+    }
+
+    void cancel(int notificationID) {
+        synchronized (this) {
+            PendingRender render = pending.get(notificationID);
+            if (render != null) {
+                handler.removeCallbacks(render);
+                pending.remove(notificationID);
+            }
+        }
+    }
+}
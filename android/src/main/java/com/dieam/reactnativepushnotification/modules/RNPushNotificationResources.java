@@ -0,0 +1,154 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.os.Bundle;
+import android.util.LruCache;
+
+import java.util.HashMap;
+
+/**
+ * Caches icon and sound resources used to build notifications.
+ * <p>
+ * Identifier lookups and sound URIs are cached by name for the life of the process, as they
+ * cannot change without the APK changing. Decoded large icons are kept in an LRU bounded by
+ * their size in bytes.
+ */
+class RNPushNotificationResources {
+    private static RNPushNotificationResources instance;
+
+    private final Context context;
+    private final Resources resources;
+    private final String packageName;
+    private final HashMap<String, Integer> identifiers = new HashMap<>();
+    private final HashMap<String, Uri> soundUris = new HashMap<>();
+    private final LruCache<Integer, Bitmap> bitmaps;
+
+    private long identifierHits;
+    private long identifierMisses;
+    private long soundHits;
+    private long soundMisses;
+
+    private RNPushNotificationResources(Context context, int bitmapCacheSize) {
+        this.context = context;
+        this.resources = context.getResources();
+        this.packageName = context.getPackageName();
+        this.bitmaps = new LruCache<Integer, Bitmap>(Math.max(1, bitmapCacheSize)) {
+            @Override
+            protected int sizeOf(Integer resId, Bitmap bitmap) {
+                return bitmap.getByteCount();
+            }
+        };
+    }
+
+    static synchronized RNPushNotificationResources getInstance(Context context) {
+        if (instance == null) {
+            Context applicationContext = context.getApplicationContext();
+            int bitmapCacheSize = new RNPushNotificationConfig(applicationContext).getLargeIconCacheSize();
+            instance = new RNPushNotificationResources(applicationContext, bitmapCacheSize);
+        }
+        return instance;
+    }
+
+    /**
+     * Same as {@link Resources#getIdentifier(String, String, String)} for this package, cached.
+     */
+    synchronized int getIdentifier(String name, String type) {
+        String key = type + "/" + name;
+        Integer resId = identifiers.get(key);
+        if (resId != null) {
+            identifierHits++;
+            return resId;
+        }
+        identifierMisses++;
+        resId = resources.getIdentifier(name, type, packageName);
+        identifiers.put(key, resId);
+        return resId;
+    }
+
+    /**
+     * Resolves the small icon, falling back to ic_notification, ic_launcher and the system
+     * info icon in that order.
+     */
+    int getSmallIcon(String smallIcon) {
+        int smallIconResId;
+
+        if (smallIcon != null) {
+            smallIconResId = getIdentifier(smallIcon, "mipmap");
+        } else {
+            smallIconResId = getIdentifier("ic_notification", "mipmap");
+        }
+
+        if (smallIconResId == 0) {
+            smallIconResId = getIdentifier("ic_launcher", "mipmap");
+
+            if (smallIconResId == 0) {
+                smallIconResId = android.R.drawable.ic_dialog_info;
+            }
+        }
+        return smallIconResId;
+    }
+
+    /**
+     * @return the decoded bitmap of a resource, or null if resId is 0 or cannot be decoded
+     */
+    Bitmap getBitmap(int resId) {
+        if (resId == 0) {
+            return null;
+        }
+        Bitmap bitmap = bitmaps.get(resId);
+        if (bitmap == null) {
+            bitmap = BitmapFactory.decodeResource(resources, resId);
+            if (bitmap != null) {
+                bitmaps.put(resId, bitmap);
+            }
+        }
+        return bitmap;
+    }
+
+    /**
+     * Cached {@link ChannelSettings#getSoundUri(Context, String)}.
+     */
+    synchronized Uri getSoundUri(String soundName) {
+        if (soundName == null) {
+            return null;
+        }
+        if (soundUris.containsKey(soundName)) {
+            soundHits++;
+            return soundUris.get(soundName);
+        }
+        soundMisses++;
+        Uri soundUri = ChannelSettings.getSoundUri(context, soundName);
+        soundUris.put(soundName, soundUri);
+        return soundUri;
+    }
+
+    synchronized Bundle getStats() {
+        Bundle identifierStats = new Bundle();
+        identifierStats.putInt("size", identifiers.size());
+        identifierStats.putDouble("hits", identifierHits);
+        identifierStats.putDouble("misses", identifierMisses);
+
+        Bundle soundStats = new Bundle();
+        soundStats.putInt("size", soundUris.size());
+        soundStats.putDouble("hits", soundHits);
+        soundStats.putDouble("misses", soundMisses);
+
+        Bundle bitmapStats = new Bundle();
+        bitmapStats.putInt("count", bitmaps.snapshot().size());
+        bitmapStats.putInt("bytes", bitmaps.size());
+        bitmapStats.putInt("maxBytes", bitmaps.maxSize());
+        bitmapStats.putDouble("hits", bitmaps.hitCount());
+        bitmapStats.putDouble("misses", bitmaps.missCount());
+        bitmapStats.putDouble("evictions", bitmaps.evictionCount());
+
+        Bundle stats = new Bundle();
+        stats.putBundle("identifiers", identifierStats);
+        stats.putBundle("sounds", soundStats);
+        stats.putBundle("bitmaps", bitmapStats);
+        return stats;
+    }
+}
@@ -0,0 +1,376 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.os.Bundle;
+import android.util.Log;
+
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableMapKeySetIterator;
+import com.facebook.react.bridge.ReadableType;
+
+import org.json.JSONException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.dieam.reactnativepushnotification.modules.RNPushNotification.LOG_TAG;
+
+/**
+ * SQLite backed store for scheduled local notifications.
+ * <p>
+ * Each notification is one row keyed by id and indexed by fire date. The string attributes are
+ * also written to a (field, value) index so {@link #findMatching(ReadableMap)} only parses the
+ * candidates that can match. Writes touch only the affected rows instead of rewriting the whole
+ * preferences file.
+ */
+class RNPushNotificationScheduleStore extends SQLiteOpenHelper {
+    private static final String DATABASE_NAME = "rn_push_notification.db";
+    private static final int DATABASE_VERSION = 2;
+
+    private static final String TABLE_SCHEDULED = "scheduled";
+    private static final String TABLE_FIELDS = "scheduled_fields";
+    private static final String COLUMN_ID = "id";
+    private static final String COLUMN_FIRE_DATE = "fire_date";
+    private static final String COLUMN_ATTRIBUTES = "attributes";
+    private static final String COLUMN_FIELD = "field";
+    private static final String COLUMN_VALUE = "value";
+    private static final String TABLE_META = "meta";
+    private static final String COLUMN_KEY = "key";
+
+    private static RNPushNotificationScheduleStore instance;
+
+    private RNPushNotificationScheduleStore(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    static synchronized RNPushNotificationScheduleStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new RNPushNotificationScheduleStore(context.getApplicationContext());
+            instance.migrateFromPreferences(context);
+        }
+        return instance;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_SCHEDULED + " ("
+                + COLUMN_ID + " TEXT PRIMARY KEY, "
+                + COLUMN_FIRE_DATE + " INTEGER NOT NULL, "
+                + COLUMN_ATTRIBUTES + " TEXT NOT NULL)");
+        db.execSQL("CREATE INDEX " + TABLE_SCHEDULED + "_" + COLUMN_FIRE_DATE
+                + " ON " + TABLE_SCHEDULED + " (" + COLUMN_FIRE_DATE + ")");
+        db.execSQL("CREATE TABLE " + TABLE_FIELDS + " ("
+                + COLUMN_ID + " TEXT NOT NULL, "
+                + COLUMN_FIELD + " TEXT NOT NULL, "
+                + COLUMN_VALUE + " TEXT, "
+                + "PRIMARY KEY (" + COLUMN_ID + ", " + COLUMN_FIELD + "))");
+        db.execSQL("CREATE INDEX " + TABLE_FIELDS + "_" + COLUMN_VALUE
+                + " ON " + TABLE_FIELDS + " (" + COLUMN_FIELD + ", " + COLUMN_VALUE + ")");
+        createMetaTable(db);
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion < 2) {
+            createMetaTable(db);
+        }
+    }
+
+    private void createMetaTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_META + " ("
+                + COLUMN_KEY + " TEXT PRIMARY KEY, "
+                + COLUMN_VALUE + " TEXT)");
+    }
+
+    boolean put(RNPushNotificationAttributes attributes) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            insert(db, attributes);
+            db.setTransactionSuccessful();
+            return true;
+        } catch (Exception e) {
+            Log.e(LOG_TAG, "Failed to store scheduled notification " + attributes.getId(), e);
+            return false;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Writes all notifications in one transaction, either all of them are stored or none.
+     */
+    boolean putAll(List<RNPushNotificationAttributes> attributesList) {
+        if (attributesList.isEmpty()) {
+            return true;
+        }
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (RNPushNotificationAttributes attributes : attributesList) {
+                insert(db, attributes);
+            }
+            db.setTransactionSuccessful();
+            return true;
+        } catch (Exception e) {
+            Log.e(LOG_TAG, "Failed to store " + attributesList.size() + " scheduled notifications", e);
+            return false;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    RNPushNotificationAttributes get(String id) {
+        Cursor cursor = getReadableDatabase().query(TABLE_SCHEDULED, new String[]{COLUMN_ATTRIBUTES},
+                COLUMN_ID + " = ?", new String[]{id}, null, null, null);
+        try {
+            return cursor.moveToFirst() ? parse(id, cursor.getString(0)) : null;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    boolean contains(String id) {
+        Cursor cursor = getReadableDatabase().query(TABLE_SCHEDULED, new String[]{COLUMN_ID},
+                COLUMN_ID + " = ?", new String[]{id}, null, null, null);
+        try {
+            return cursor.moveToFirst();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * @return true if a notification with this id was stored
+     */
+    boolean remove(String id) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            int removed = db.delete(TABLE_SCHEDULED, COLUMN_ID + " = ?", new String[]{id});
+            db.delete(TABLE_FIELDS, COLUMN_ID + " = ?", new String[]{id});
+            db.setTransactionSuccessful();
+            return removed > 0;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    List<String> getAllIds() {
+        ArrayList<String> ids = new ArrayList<>();
+        Cursor cursor = getReadableDatabase().query(TABLE_SCHEDULED, new String[]{COLUMN_ID},
+                null, null, null, null, null);
+        try {
+            while (cursor.moveToNext()) {
+                ids.add(cursor.getString(0));
+            }
+        } finally {
+            cursor.close();
+        }
+        return ids;
+    }
+
+    List<RNPushNotificationAttributes> getAll() {
+        return query(null, null, null);
+    }
+
+    /**
+     * Removes and replaces notifications and updates meta values in a single transaction, so
+     * progress recorded in the meta table always matches the rows.
+     *
+     * @param meta values to store, a null value deletes the key
+     */
+    boolean commit(List<String> removeIds, List<RNPushNotificationAttributes> putAttributes, Map<String, String> meta) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (String id : removeIds) {
+                db.delete(TABLE_SCHEDULED, COLUMN_ID + " = ?", new String[]{id});
+                db.delete(TABLE_FIELDS, COLUMN_ID + " = ?", new String[]{id});
+            }
+            for (RNPushNotificationAttributes attributes : putAttributes) {
+                insert(db, attributes);
+            }
+            for (Map.Entry<String, String> entry : meta.entrySet()) {
+                if (entry.getValue() == null) {
+                    db.delete(TABLE_META, COLUMN_KEY + " = ?", new String[]{entry.getKey()});
+                } else {
+                    ContentValues row = new ContentValues();
+                    row.put(COLUMN_KEY, entry.getKey());
+                    row.put(COLUMN_VALUE, entry.getValue());
+                    db.insertWithOnConflict(TABLE_META, null, row, SQLiteDatabase.CONFLICT_REPLACE);
+                }
+            }
+            db.setTransactionSuccessful();
+            return true;
+        } catch (Exception e) {
+            Log.e(LOG_TAG, "Failed to update scheduled notifications", e);
+            return false;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    String getMeta(String key) {
+        Cursor cursor = getReadableDatabase().query(TABLE_META, new String[]{COLUMN_VALUE},
+                COLUMN_KEY + " = ?", new String[]{key}, null, null, null);
+        try {
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * @return the earliest fire date after the given time, or -1 if nothing is scheduled
+     */
+    long getNextFireDate(long after) {
+        Cursor cursor = getReadableDatabase().query(TABLE_SCHEDULED, new String[]{COLUMN_FIRE_DATE},
+                COLUMN_FIRE_DATE + " > ?", new String[]{String.valueOf(after)}, null, null, COLUMN_FIRE_DATE, "1");
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : -1;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * @return up to limit notifications due at or before now, earliest first
+     */
+    List<RNPushNotificationAttributes> getDue(long now, int limit) {
+        return getDue(-1, now, limit);
+    }
+
+    /**
+     * @return up to limit notifications due after the given time and at or before now, earliest first
+     */
+    List<RNPushNotificationAttributes> getDue(long after, long now, int limit) {
+        return query(COLUMN_FIRE_DATE + " > ? AND " + COLUMN_FIRE_DATE + " <= ?",
+                new String[]{String.valueOf(after), String.valueOf(now)}, String.valueOf(limit));
+    }
+
+    /**
+     * Finds the stored notifications whose attributes match every field of userInfo, with the
+     * same semantics as {@link RNPushNotificationAttributes#matches(ReadableMap)}.
+     */
+    List<RNPushNotificationAttributes> findMatching(ReadableMap userInfo) {
+        StringBuilder selection = new StringBuilder();
+        ArrayList<String> selectionArgs = new ArrayList<>();
+
+        ReadableMapKeySetIterator iterator = userInfo.keySetIterator();
+        while (iterator.hasNextKey()) {
+            String key = iterator.nextKey();
+            if (userInfo.getType(key) != ReadableType.String) {
+                continue;
+            }
+            if (selection.length() > 0) {
+                selection.append(" AND ");
+            }
+            selection.append(COLUMN_ID).append(" IN (SELECT ").append(COLUMN_ID).append(" FROM ")
+                    .append(TABLE_FIELDS).append(" WHERE ").append(COLUMN_FIELD).append(" = ? AND ")
+                    .append(COLUMN_VALUE).append(" = ?)");
+            selectionArgs.add(key);
+            selectionArgs.add(userInfo.getString(key));
+        }
+
+        List<RNPushNotificationAttributes> candidates = selection.length() > 0
+                ? query(selection.toString(), selectionArgs.toArray(new String[selectionArgs.size()]), null)
+                : query(null, null, null);
+
+        ArrayList<RNPushNotificationAttributes> matches = new ArrayList<>();
+        for (RNPushNotificationAttributes attributes : candidates) {
+            if (attributes.matches(userInfo)) {
+                matches.add(attributes);
+            }
+        }
+        return matches;
+    }
+
+    private List<RNPushNotificationAttributes> query(String selection, String[] selectionArgs, String limit) {
+        ArrayList<RNPushNotificationAttributes> result = new ArrayList<>();
+        Cursor cursor = getReadableDatabase().query(TABLE_SCHEDULED, new String[]{COLUMN_ID, COLUMN_ATTRIBUTES},
+                selection, selectionArgs, null, null, COLUMN_FIRE_DATE, limit);
+        try {
+            while (cursor.moveToNext()) {
+                RNPushNotificationAttributes attributes = parse(cursor.getString(0), cursor.getString(1));
+                if (attributes != null) {
+                    result.add(attributes);
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        return result;
+    }
+
+    private void insert(SQLiteDatabase db, RNPushNotificationAttributes attributes) {
+        String id = attributes.getId();
+
+        ContentValues row = new ContentValues();
+        row.put(COLUMN_ID, id);
+        row.put(COLUMN_FIRE_DATE, (long) attributes.getFireDate());
+        row.put(COLUMN_ATTRIBUTES, attributes.toJson().toString());
+        db.insertWithOnConflict(TABLE_SCHEDULED, null, row, SQLiteDatabase.CONFLICT_REPLACE);
+
+        db.delete(TABLE_FIELDS, COLUMN_ID + " = ?", new String[]{id});
+        Bundle bundle = attributes.toBundle();
+        for (String field : bundle.keySet()) {
+            Object value = bundle.get(field);
+            if (!(value instanceof String)) {
+                continue;
+            }
+            ContentValues fieldRow = new ContentValues();
+            fieldRow.put(COLUMN_ID, id);
+            fieldRow.put(COLUMN_FIELD, field);
+            fieldRow.put(COLUMN_VALUE, (String) value);
+            db.insert(TABLE_FIELDS, null, fieldRow);
+        }
+    }
+
+    private RNPushNotificationAttributes parse(String id, String json) {
+        try {
+            return RNPushNotificationAttributes.fromJson(json);
+        } catch (JSONException e) {
+            Log.w(LOG_TAG, "Problem dealing with scheduled notification " + id, e);
+            return null;
+        }
+    }
+
+    /**
+     * One-time import of the notifications stored as JSON in the legacy preferences file.
+     */
+    private void migrateFromPreferences(Context context) {
+        SharedPreferences preferences = context.getSharedPreferences(RNPushNotificationHelper.PREFERENCES_KEY, Context.MODE_PRIVATE);
+        Map<String, ?> legacyEntries = preferences.getAll();
+        if (legacyEntries.isEmpty()) {
+            return;
+        }
+
+        Log.i(LOG_TAG, "Migrating " + legacyEntries.size() + " scheduled notifications from preferences");
+
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (Map.Entry<String, ?> entry : legacyEntries.entrySet()) {
+                if (!(entry.getValue() instanceof String)) {
+                    continue;
+                }
+                RNPushNotificationAttributes attributes = parse(entry.getKey(), (String) entry.getValue());
+                if (attributes != null && attributes.getId() != null) {
+                    insert(db, attributes);
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        preferences.edit().clear().commit();
+    }
+}
@@ -0,0 +1,214 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.app.AlarmManager;
+import android.app.Application;
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.os.Bundle;
+import android.util.Log;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import static com.dieam.reactnativepushnotification.modules.RNPushNotification.LOG_TAG;
+
+/**
+ * Keeps a single alarm registered for the earliest scheduled notification.
+ * <p>
+ * The schedule store is the time-ordered index; only its head is handed to the
+ * {@link AlarmManager}. When the alarm fires the publisher drains every due entry on a serial
+ * worker and re-arms for the next one, so the number of system alarms no longer grows with the
+ * number of scheduled notifications.
+ */
+class RNPushNotificationScheduler {
+    static final String ACTION_DRAIN = "com.dieam.reactnativepushnotification.DRAIN_SCHEDULED";
+    static final String ACTION_WARM_UP = "com.dieam.reactnativepushnotification.WARM_UP_SCHEDULED";
+
+    private static final int DRAIN_REQUEST_CODE = 0x5C4ED;
+    private static final int WARM_UP_REQUEST_CODE = 0x5C4EF;
+    private static final int DRAIN_BATCH_SIZE = 50;
+
+    private static RNPushNotificationScheduler instance;
+
+    private final Application application;
+    private final RNPushNotificationScheduleStore store;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new Thread(runnable, "RNPushNotificationScheduler");
+        }
+    });
+
+    // Fire date the alarm is currently registered for in this process, or -1 if none
+    private long armedFireDate = -1;
+
+    private RNPushNotificationScheduler(Application application) {
+        this.application = application;
+        this.store = RNPushNotificationScheduleStore.getInstance(application);
+    }
+
+    static synchronized RNPushNotificationScheduler getInstance(Context context) {
+        if (instance == null) {
+            instance = new RNPushNotificationScheduler((Application) context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Registers the alarm for the earliest stored notification, or cancels it when nothing is
+     * scheduled. Does nothing if the alarm is already set for that time.
+     */
+    synchronized void rearm() {
+        long nextFireDate = store.getNextFireDate(getRestoreCutoff());
+        if (nextFireDate == armedFireDate) {
+            return;
+        }
+
+        AlarmManager alarmManager = (AlarmManager) application.getSystemService(Context.ALARM_SERVICE);
+        PendingIntent drainIntent = toDrainIntent();
+        rearmWarmUp(alarmManager, nextFireDate);
+
+        if (nextFireDate < 0) {
+            RNPushNotificationLog.d("No scheduled notifications left, cancelling the scheduler alarm");
+            alarmManager.cancel(drainIntent);
+        } else {
+            // If the fireDate is in past, this will fire immediately
+            RNPushNotificationLog.d("Arming the scheduler alarm at time ", nextFireDate);
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+                alarmManager.setExact(AlarmManager.RTC_WAKEUP, nextFireDate, drainIntent);
+            } else {
+                alarmManager.set(AlarmManager.RTC_WAKEUP, nextFireDate, drainIntent);
+            }
+        }
+        armedFireDate = nextFireDate;
+    }
+
+    // The React context is warmed up ahead of the next alarm, an inexact alarm is close enough
+    private void rearmWarmUp(AlarmManager alarmManager, long nextFireDate) {
+        RNPushNotificationWarmUp warmUp = RNPushNotificationWarmUp.getInstance(application);
+        if (!warmUp.isEnabled(RNPushNotificationWarmUp.TRIGGER_ALARM)) {
+            return;
+        }
+        PendingIntent warmUpIntent = toWarmUpIntent();
+        if (nextFireDate < 0) {
+            alarmManager.cancel(warmUpIntent);
+            return;
+        }
+        long warmUpDate = nextFireDate - warmUp.getAlarmLead();
+        if (warmUpDate <= System.currentTimeMillis()) {
+            alarmManager.cancel(warmUpIntent);
+            warmUp.warmUp(RNPushNotificationWarmUp.TRIGGER_ALARM);
+        } else {
+            alarmManager.set(AlarmManager.RTC_WAKEUP, warmUpDate, warmUpIntent);
+        }
+    }
+
+    /**
+     * Shows every notification that is due, then re-arms for the next one. Runs on the serial
+     * worker and finishes the broadcast once done.
+     */
+    void drain(final BroadcastReceiver.PendingResult pendingResult) {
+        worker.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    synchronized (RNPushNotificationScheduler.this) {
+                        // The alarm that woke us up is spent
+                        armedFireDate = -1;
+                    }
+                    RNPushNotificationWarmUp.getInstance(application).onContextNeeded();
+                    drainDue();
+                } catch (Exception e) {
+                    Log.e(LOG_TAG, "Failed to publish scheduled notifications", e);
+                } finally {
+                    rearm();
+                    if (pendingResult != null) {
+                        pendingResult.finish();
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Runs a task on the serial worker, after any drain that is already queued.
+     */
+    void execute(Runnable task) {
+        worker.execute(task);
+    }
+
+    /**
+     * Handles an alarm registered per notification by an earlier version. The entry is only shown
+     * if the scheduler has not published it already.
+     */
+    void publishLegacy(final String notificationIdString, final Bundle extras,
+                       final BroadcastReceiver.PendingResult pendingResult) {
+        worker.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (notificationIdString == null || store.contains(notificationIdString)) {
+                        RNPushNotificationHelper.getInstance(application).sendToNotificationCentre(extras);
+                    }
+                } catch (Exception e) {
+                    Log.e(LOG_TAG, "Failed to publish scheduled notification " + notificationIdString, e);
+                } finally {
+                    rearm();
+                    if (pendingResult != null) {
+                        pendingResult.finish();
+                    }
+                }
+            }
+        });
+    }
+
+    private void drainDue() {
+        RNPushNotificationHelper helper = RNPushNotificationHelper.getInstance(application);
+        // A repeating notification that is still overdue comes back with its next fire date. It is
+        // left for the next alarm instead of being replayed in a tight loop here.
+        HashSet<String> published = new HashSet<>();
+        while (true) {
+            List<RNPushNotificationAttributes> due = store.getDue(getRestoreCutoff(), System.currentTimeMillis(), DRAIN_BATCH_SIZE);
+            boolean publishedAny = false;
+            for (RNPushNotificationAttributes notificationAttributes : due) {
+                String id = notificationAttributes.getId();
+                if (!published.add(id)) {
+                    continue;
+                }
+                Log.i(LOG_TAG, "NotificationPublisher: Prepare To Publish: " + id
+                        + ", Now Time: " + System.currentTimeMillis());
+                // Removed up front so a notification that fails to render is not retried forever.
+                // A repeating notification is stored again with its next fire date.
+                store.remove(id);
+                helper.sendToNotificationCentre(notificationAttributes.toBundle());
+                publishedAny = true;
+            }
+            if (!publishedAny) {
+                return;
+            }
+        }
+    }
+
+    // Overdue notifications are left to the boot restore while it runs
+    private long getRestoreCutoff() {
+        return RNPushNotificationBootRestore.getInstance(application).getPendingCutoff();
+    }
+
+    private PendingIntent toDrainIntent() {
+        Intent intent = new Intent(application, RNPushNotificationPublisher.class);
+        intent.setAction(ACTION_DRAIN);
+        return PendingIntent.getBroadcast(application, DRAIN_REQUEST_CODE, intent, PendingIntent.FLAG_UPDATE_CURRENT);
+    }
+
+    private PendingIntent toWarmUpIntent() {
+        Intent intent = new Intent(application, RNPushNotificationPublisher.class);
+        intent.setAction(ACTION_WARM_UP);
+        return PendingIntent.getBroadcast(application, WARM_UP_REQUEST_CODE, intent, PendingIntent.FLAG_UPDATE_CURRENT);
+    }
+}
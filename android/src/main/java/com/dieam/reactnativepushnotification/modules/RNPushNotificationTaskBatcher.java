@@ -0,0 +1,116 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.ArrayList;
+
+import static com.dieam.reactnativepushnotification.modules.RNPushNotification.LOG_TAG;
+
+/**
+ * Queues NOTIFY headless tasks and starts them as one {@link JSPushNotificationTask#NOTIFY_BATCH_TASK_KEY}
+ * invocation.
+ * <p>
+ * A batch is started once it holds notify_task_batch_size tasks, or notify_task_batch_timeout
+ * ms after its first task was queued, so a burst of pushes costs one headless task instead of
+ * one per push. Tasks are handed over in the order they were queued.
+ * <p>
+ * Queued tasks only live in memory and are started after the push callback returned, so the
+ * timeout is capped to stay within the window in which Android O+ still lets the app start a
+ * background service after a push. Tasks that cannot be started are queued again and retried
+ * with the next push rather than dropped.
+ */
+class RNPushNotificationTaskBatcher {
+    static final String BUNDLE_TASKS_KEY = "notifications";
+    private static final long MAX_FLUSH_TIMEOUT = 1000L;
+
+    private static RNPushNotificationTaskBatcher instance;
+
+    private final Context context;
+    private final int flushSize;
+    private final long flushTimeout;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable flushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    private ArrayList<Bundle> pending = new ArrayList<>();
+    private boolean isFlushScheduled = false;
+
+    private RNPushNotificationTaskBatcher(Context context, int flushSize, long flushTimeout) {
+        this.context = context;
+        this.flushSize = flushSize;
+        this.flushTimeout = Math.min(Math.max(0, flushTimeout), MAX_FLUSH_TIMEOUT);
+    }
+
+    /**
+     * @return the shared batcher, or null when batching is not enabled in the manifest
+     */
+    static synchronized RNPushNotificationTaskBatcher getInstance(Context context) {
+        if (instance == null) {
+            RNPushNotificationConfig config = new RNPushNotificationConfig(context);
+            if (config.getNotifyTaskBatchSize() <= 1) {
+                return null;
+            }
+            instance = new RNPushNotificationTaskBatcher(context.getApplicationContext(),
+                    config.getNotifyTaskBatchSize(), config.getNotifyTaskBatchTimeout());
+        }
+        return instance;
+    }
+
+    synchronized void add(Bundle task) {
+        pending.add(task);
+        if (pending.size() >= flushSize) {
+            flush();
+        } else if (!isFlushScheduled) {
+            isFlushScheduled = true;
+            handler.postDelayed(flushRunnable, flushTimeout);
+        }
+    }
+
+    synchronized void flush() {
+        handler.removeCallbacks(flushRunnable);
+        isFlushScheduled = false;
+        if (pending.isEmpty()) {
+            return;
+        }
+        ArrayList<Bundle> tasks = pending;
+        pending = new ArrayList<>();
+
+        Bundle extras = new Bundle();
+        extras.putString(JSPushNotificationTask.BUNDLE_TASK_NAME_KEY, JSPushNotificationTask.NOTIFY_BATCH_TASK_KEY);
+        extras.putParcelableArrayList(BUNDLE_TASKS_KEY, tasks);
+
+        Intent service = new Intent(context, JSPushNotificationTask.class);
+        service.putExtras(extras);
+        try {
+            context.startService(service);
+        } catch (IllegalStateException e) {
+            Log.w(LOG_TAG, "Unable to start batch of " + tasks.size() + " notify tasks, starting them one by one", e);
+            startEach(tasks);
+        }
+    }
+
+    // Tasks that still cannot be started wait for the next push, which allows a start again
+    private void startEach(ArrayList<Bundle> tasks) {
+        for (Bundle task : tasks) {
+            Intent service = new Intent(context, JSPushNotificationTask.class);
+            service.putExtras(task);
+            try {
+                context.startService(service);
+            } catch (IllegalStateException e) {
+                pending.add(task);
+            }
+        }
+        if (!pending.isEmpty()) {
+            Log.w(LOG_TAG, "Keeping " + pending.size() + " notify tasks until the next push");
+        }
+    }
+}
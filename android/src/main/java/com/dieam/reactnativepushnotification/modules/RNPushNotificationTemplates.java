@@ -0,0 +1,149 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.Bundle;
+
+import androidx.core.app.NotificationCompat;
+
+import java.util.EnumMap;
+
+/**
+ * The parts of a notification that only depend on its channel type, resolved once.
+ * <p>
+ * The channel id (a preferences read, and a channel creation the first time), the default small
+ * icon, the manifest color and the default vibration pattern used to be looked up again for every
+ * message. A template holds them per {@link NotificationChannelManager.CHANNELS}, so a render only
+ * applies the fields of its message. The channel id is only resolved for templates whose
+ * notifications are posted to that channel, paths that keep a legacy channel never create one.
+ * Templates are rebuilt after a channel is replaced.
+ * <p>
+ * Visibility, priority and group stay with the render paths. They cost no lookup, and they follow
+ * the path and the message rather than the channel type: the messaging path picks its template
+ * from the push's channel type, and the other paths take them from the bundle.
+ */
+class RNPushNotificationTemplates {
+    private static final long DEFAULT_VIBRATION = 300L;
+
+    private static RNPushNotificationTemplates instance;
+
+    private final Resolver resolver;
+    private final EnumMap<NotificationChannelManager.CHANNELS, Template> templates =
+            new EnumMap<>(NotificationChannelManager.CHANNELS.class);
+
+    /**
+     * The lookups a template saves, replaced in tests.
+     */
+    interface Resolver {
+        /**
+         * @return the id of the channel, created if needed, or null before Android O
+         */
+        String channelId(NotificationChannelManager.CHANNELS channel);
+
+        int defaultSmallIcon();
+
+        // -1 if the manifest sets no color
+        int defaultColor();
+    }
+
+    static final class Template {
+        private final NotificationChannelManager.CHANNELS channel;
+        private final Resolver resolver;
+        final int smallIcon;
+        // -1 if the manifest sets no color
+        final int color;
+        private final long[] defaultVibration;
+        private String channelId;
+        private boolean isChannelResolved = false;
+
+        private Template(NotificationChannelManager.CHANNELS channel, Resolver resolver) {
+            this.channel = channel;
+            this.resolver = resolver;
+            this.smallIcon = resolver.defaultSmallIcon();
+            this.color = resolver.defaultColor();
+            this.defaultVibration = new long[]{0, DEFAULT_VIBRATION};
+        }
+
+        /**
+         * @return the id of the template's channel, null before Android O where notifications have
+         * no channel. The channel is created on first use, so only call this to post to it.
+         */
+        synchronized String channelId() {
+            if (!isChannelResolved) {
+                channelId = resolver.channelId(channel);
+                isChannelResolved = true;
+            }
+            return channelId;
+        }
+
+        /**
+         * Starts a notification on the given channel, render paths that predate the channel types
+         * keep posting to their own channel.
+         */
+        NotificationCompat.Builder newBuilder(Context context, String channelId) {
+            return new NotificationCompat.Builder(context, channelId)
+                    .setSmallIcon(smallIcon);
+        }
+
+        int smallIconFor(Bundle bundle, RNPushNotificationResources resources) {
+            String smallIcon = bundle.getString("smallIcon");
+            return smallIcon != null ? resources.getSmallIcon(smallIcon) : this.smallIcon;
+        }
+
+        /**
+         * @return the vibration pattern of the message, or null if it does not vibrate. The
+         * default pattern is shared, it must not be modified.
+         */
+        long[] vibrationFor(Bundle bundle) {
+            if (bundle.containsKey("vibrate") && !bundle.getBoolean("vibrate")) {
+                return null;
+            }
+            long vibration = bundle.containsKey("vibration") ? (long) bundle.getDouble("vibration") : 0;
+            return vibration == 0 ? defaultVibration : new long[]{0, vibration};
+        }
+    }
+
+    RNPushNotificationTemplates(Resolver resolver) {
+        this.resolver = resolver;
+    }
+
+    static synchronized RNPushNotificationTemplates getInstance(Context context, final NotificationChannelManager notificationChannelManager) {
+        if (instance == null) {
+            final Context applicationContext = context.getApplicationContext();
+            instance = new RNPushNotificationTemplates(new Resolver() {
+                @Override
+                public String channelId(NotificationChannelManager.CHANNELS channel) {
+                    return Build.VERSION.SDK_INT >= Build.VERSION_CODES.O
+                            ? notificationChannelManager.createChannelIfNotExists(channel) : null;
+                }
+
+                @Override
+                public int defaultSmallIcon() {
+                    return RNPushNotificationResources.getInstance(applicationContext).getSmallIcon(null);
+                }
+
+                @Override
+                public int defaultColor() {
+                    return new RNPushNotificationConfig(applicationContext).getNotificationColor();
+                }
+            });
+        }
+        return instance;
+    }
+
+    synchronized Template get(NotificationChannelManager.CHANNELS channel) {
+        Template template = templates.get(channel);
+        if (template == null) {
+            template = new Template(channel, resolver);
+            templates.put(channel, template);
+        }
+        return template;
+    }
+
+    /**
+     * Drops the templates, e.g. after a channel was replaced with a new id.
+     */
+    synchronized void invalidate() {
+        templates.clear();
+    }
+}
@@ -0,0 +1,163 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.app.Application;
+import android.content.Context;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import com.facebook.react.ReactApplication;
+import com.facebook.react.ReactInstanceManager;
+import com.facebook.react.bridge.ReactContext;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+/**
+ * Creates the React context ahead of notification work that will need it.
+ * <p>
+ * The triggers enabled by the warm_up_triggers meta-data start loading the JS bundle in the
+ * background, so the push or alarm that follows does not pay for it. The first piece of work
+ * that needs the context after a warm-up records how much of the load it was spared: the whole
+ * load time if the context was ready, otherwise the head start it got.
+ */
+class RNPushNotificationWarmUp {
+    static final String TRIGGER_BOOT = "boot";
+    static final String TRIGGER_ALARM = "alarm";
+    static final String TRIGGER_CALL = "call";
+
+    private static RNPushNotificationWarmUp instance;
+
+    private final Application application;
+    private final HashSet<String> triggers = new HashSet<>();
+    private final long alarmLead;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // The warm-up whose context has not been used yet, null if there is none
+    private String pendingTrigger;
+    private long startedAt;
+    private long loadTime = -1;
+
+    private final HashMap<String, Stats> stats = new HashMap<>();
+
+    private RNPushNotificationWarmUp(Application application) {
+        this.application = application;
+        RNPushNotificationConfig config = new RNPushNotificationConfig(application);
+        String enabledTriggers = config.getWarmUpTriggers();
+        if (enabledTriggers != null) {
+            for (String trigger : enabledTriggers.split(",")) {
+                triggers.add(trigger.trim());
+            }
+        }
+        alarmLead = config.getWarmUpAlarmLead() * 60 * 1000L;
+    }
+
+    static synchronized RNPushNotificationWarmUp getInstance(Context context) {
+        if (instance == null) {
+            instance = new RNPushNotificationWarmUp((Application) context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    boolean isEnabled(String trigger) {
+        return triggers.contains(trigger);
+    }
+
+    /**
+     * @return how long before a scheduled notification its alarm warm-up fires, in ms
+     */
+    long getAlarmLead() {
+        return alarmLead;
+    }
+
+    /**
+     * Starts creating the React context in the background if the trigger is enabled and there is
+     * no context yet. Can be called from any thread.
+     */
+    void warmUp(final String trigger) {
+        if (!isEnabled(trigger)) {
+            return;
+        }
+        // The React code assumes it is created from the main thread
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                start(trigger);
+            }
+        });
+    }
+
+    /**
+     * Called by work that needs the React context, credits the pending warm-up if there is one.
+     */
+    synchronized void onContextNeeded() {
+        if (pendingTrigger == null) {
+            return;
+        }
+        long saved = loadTime >= 0 ? loadTime : SystemClock.elapsedRealtime() - startedAt;
+        Stats triggerStats = getStats(pendingTrigger);
+        triggerStats.used++;
+        triggerStats.savedTime += saved;
+        RNPushNotificationLog.d("[warmUp] trigger and saved ms: ", pendingTrigger, saved);
+        pendingTrigger = null;
+    }
+
+    synchronized Bundle getStats() {
+        Bundle result = new Bundle();
+        for (Map.Entry<String, Stats> entry : stats.entrySet()) {
+            Stats triggerStats = entry.getValue();
+            Bundle triggerBundle = new Bundle();
+            triggerBundle.putDouble("warmUps", triggerStats.warmUps);
+            triggerBundle.putDouble("used", triggerStats.used);
+            triggerBundle.putDouble("savedTime", triggerStats.savedTime);
+            triggerBundle.putDouble("loadTime", triggerStats.loadTime);
+            result.putBundle(entry.getKey(), triggerBundle);
+        }
+        return result;
+    }
+
+    private void start(final String trigger) {
+        final ReactInstanceManager reactInstanceManager = ((ReactApplication) application).getReactNativeHost().getReactInstanceManager();
+        if (reactInstanceManager.getCurrentReactContext() != null || reactInstanceManager.hasStartedCreatingInitialContext()) {
+            return;
+        }
+
+        synchronized (this) {
+            pendingTrigger = trigger;
+            startedAt = SystemClock.elapsedRealtime();
+            loadTime = -1;
+            getStats(trigger).warmUps++;
+        }
+        RNPushNotificationLog.d("[warmUp] creating the React context for ", trigger);
+
+        reactInstanceManager.addReactInstanceEventListener(new ReactInstanceManager.ReactInstanceEventListener() {
+            @Override
+            public void onReactContextInitialized(ReactContext context) {
+                reactInstanceManager.removeReactInstanceEventListener(this);
+                synchronized (RNPushNotificationWarmUp.this) {
+                    loadTime = SystemClock.elapsedRealtime() - startedAt;
+                    getStats(trigger).loadTime += loadTime;
+                }
+            }
+        });
+        reactInstanceManager.createReactContextInBackground();
+    }
+
+    private Stats getStats(String trigger) {
+        Stats triggerStats = stats.get(trigger);
+        if (triggerStats == null) {
+            triggerStats = new Stats();
+            stats.put(trigger, triggerStats);
+        }
+        return triggerStats;
+    }
+
+    private static class Stats {
+        long warmUps;
+        long used;
+        long savedTime;
+        long loadTime;
+    }
+}
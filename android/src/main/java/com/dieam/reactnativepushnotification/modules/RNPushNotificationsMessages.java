@@ -1,89 +1,265 @@
 package com.dieam.reactnativepushnotification.modules;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
+/**
+ * Unread messages per dialog. Every access is synchronized, as it is updated from the
+ * notification receivers, React method threads and the ingest worker.
+ */
 public class RNPushNotificationsMessages {
 
-  public int countOfmessage = 0;
+  private static final String STORE_KEY_PREFIX = "dialog-";
+  private static final int DEFAULT_MAX_MESSAGES_PER_DIALOG = 100;
+  private static final int SUMMARY_LINES = 5;
 
-  public HashMap<String, ArrayList<RNPushNotificationMessage>> messageHashMap = new HashMap<String, ArrayList<RNPushNotificationMessage>>();
+  private int countOfmessage = 0;
+
+  /**
+   * Arrival sequences of the messages of a dialog indexed by message_id, in arrival order, so
+   * duplicate checks and removals do not scan the dialog.
+   */
+  private static class Dialog {
+    final LinkedHashMap<String, Long> messages = new LinkedHashMap<String, Long>();
+
+    int count() {
+      return messages.size();
+    }
+  }
+
+  /**
+   * What the group summary shows, taken together under the lock so it never mixes two states.
+   */
+  static class Summary {
+    final int messages;
+    final int dialogs;
+    // Latest messages, oldest first
+    final List<String> lines;
+
+    Summary(int messages, int dialogs, List<String> lines) {
+      this.messages = messages;
+      this.dialogs = dialogs;
+      this.lines = lines;
+    }
+
+    boolean isSameAs(Summary other) {
+      return other != null && messages == other.messages && dialogs == other.dialogs && lines.equals(other.lines);
+    }
+  }
+
+  private final HashMap<String, Dialog> messageHashMap = new HashMap<String, Dialog>();
+  private int maxMessagesPerDialog = DEFAULT_MAX_MESSAGES_PER_DIALOG;
+  // Every retained message by arrival sequence, so the summary reads the latest ones and a
+  // delete exposes the next older one without walking every dialog
+  private final TreeMap<Long, RNPushNotificationMessage> messagesByArrival = new TreeMap<Long, RNPushNotificationMessage>();
+  private long nextSequence = 0;
+
+  private RNPushNotificationMessageStore store;
+  private boolean isLoaded = false;
 
   public RNPushNotificationsMessages()
   {
     clear();
   }
 
-  public void clear()
+  /**
+   * Persists the per-dialog messages so counts and summaries survive a process restart.
+   * Stored dialogs are read back on first use.
+   */
+  synchronized void attachStore(RNPushNotificationMessageStore messageStore)
   {
-    countOfmessage = 0;
-    messageHashMap.clear();
+    if (store == null) {
+      store = messageStore;
+      isLoaded = false;
+    }
   }
 
-  public boolean addMessage(String dialog_id, RNPushNotificationMessage message)
+  /**
+   * Number of messages kept per dialog, the oldest are dropped beyond it and no longer counted.
+   */
+  synchronized void setMaxMessagesPerDialog(int maxMessages)
   {
-    System.out.println("[addMessage][called]");
-    if (messageHashMap.get(dialog_id) == null)
+    maxMessagesPerDialog = Math.max(1, maxMessages);
+  }
+
+  private void ensureLoaded()
+  {
+    if (isLoaded || store == null)
     {
-      ArrayList<RNPushNotificationMessage> newMessageInDialog = new ArrayList<RNPushNotificationMessage>();
-      newMessageInDialog.add(message);
-
-      messageHashMap.put(dialog_id, newMessageInDialog);
-      countOfmessage++;
-      System.out.println(messageHashMap);
-      System.out.println("[addMessage][called]");
-      return true;
-    } else {
-      // check double messages message_id
-      ArrayList<RNPushNotificationMessage> existingMessages = messageHashMap.get(dialog_id);
-
-      for(int i = 0; i < existingMessages.size(); i++)
+      return;
+    }
+    isLoaded = true;
+
+    // Keys come least recently written first, the closest to arrival order the logs keep
+    for (String key : store.keys(STORE_KEY_PREFIX))
+    {
+      String dialog_id = key.substring(STORE_KEY_PREFIX.length());
+      if (messageHashMap.containsKey(dialog_id))
+      {
+        continue;
+      }
+      ArrayList<RNPushNotificationMessage> messages = store.read(key);
+      if (!messages.isEmpty())
       {
-        System.out.println("[addMessage][isEquals] " + existingMessages.get(i).message_id + " " + message.message_id);
-        if (existingMessages.get(i).message_id.equals(message.message_id))
+        Dialog dialog = new Dialog();
+        for (RNPushNotificationMessage message : messages)
         {
-          System.out.println("[addMessage][isEquals][TRUE]");
-          return false;
+          index(dialog, message);
         }
+        messageHashMap.put(dialog_id, dialog);
+        countOfmessage += dialog.count();
+        trim(dialog_id, dialog);
       }
+    }
+  }
 
-      messageHashMap.get(dialog_id).add(message);
-      countOfmessage++;
-      System.out.println(messageHashMap);
-      return true;
+  public synchronized void clear()
+  {
+    countOfmessage = 0;
+    messageHashMap.clear();
+    messagesByArrival.clear();
+    if (store != null)
+    {
+      store.clearAll(STORE_KEY_PREFIX);
+      isLoaded = true;
     }
   }
 
-  public void deleteMessage(String dialog_id, String message_id)
+  public synchronized boolean addMessage(String dialog_id, RNPushNotificationMessage message)
   {
-    if (messageHashMap.size() <= 0)
+    ensureLoaded();
+    Dialog dialog = messageHashMap.get(dialog_id);
+    if (dialog == null)
     {
-      return;
+      dialog = new Dialog();
+      messageHashMap.put(dialog_id, dialog);
+    } else if (dialog.messages.containsKey(message.message_id))
+    {
+      RNPushNotificationLog.d("[addMessage] duplicate ", dialog_id, message.message_id);
+      return false;
     }
 
-    if (messageHashMap.get(dialog_id) != null)
+    index(dialog, message);
+    countOfmessage++;
+    persist(dialog_id, message);
+    trim(dialog_id, dialog);
+    RNPushNotificationLog.d("[addMessage] ", dialog_id, message.message_id);
+    return true;
+  }
+
+  /**
+   * Adds the message and takes the summary in one atomic step.
+   *
+   * @return the summary including the message, or null if it was a duplicate
+   */
+  synchronized Summary addMessageAndSummarize(String dialog_id, RNPushNotificationMessage message)
+  {
+    if (!addMessage(dialog_id, message))
     {
-      ArrayList<RNPushNotificationMessage> listOfMessages = messageHashMap.get(dialog_id);
-      for(int i = 0; i < listOfMessages.size(); i++)
+      return null;
+    }
+    return getSummary();
+  }
+
+  synchronized Summary getSummary()
+  {
+    ensureLoaded();
+    ArrayList<String> lines = new ArrayList<String>(SUMMARY_LINES);
+    for (RNPushNotificationMessage message : messagesByArrival.descendingMap().values())
+    {
+      if (lines.size() == SUMMARY_LINES)
       {
-        if (listOfMessages.get(i).message_id == message_id)
-        {
-          listOfMessages.remove(i);
-          countOfmessage--;
-          return;
-        }
+        break;
       }
+      lines.add(message.sender + " " + message.message);
+    }
+    Collections.reverse(lines);
+    return new Summary(countOfmessage, messageHashMap.size(), Collections.unmodifiableList(lines));
+  }
+
+  public synchronized void deleteMessage(String dialog_id, String message_id)
+  {
+    ensureLoaded();
+    Dialog dialog = messageHashMap.get(dialog_id);
+    Long sequence = dialog != null ? dialog.messages.remove(message_id) : null;
+    if (sequence == null)
+    {
+      return;
+    }
+
+    countOfmessage--;
+    messagesByArrival.remove(sequence);
+    if (store != null)
+    {
+      store.remove(STORE_KEY_PREFIX + dialog_id, message_id, dialog.messages.size());
+    }
+    if (dialog.count() == 0)
+    {
+      messageHashMap.remove(dialog_id);
     }
   }
 
-  public int getCountOfDialogs()
+  public synchronized int getCountOfDialogs()
   {
+    ensureLoaded();
     return messageHashMap.size();
   }
 
-  public int getCountOfMessage()
+  public synchronized int getCountOfMessage()
   {
+    ensureLoaded();
     return countOfmessage;
   }
 
+  public synchronized int getCountOfMessage(String dialog_id)
+  {
+    ensureLoaded();
+    Dialog dialog = messageHashMap.get(dialog_id);
+    return dialog != null ? dialog.count() : 0;
+  }
+
+  // Drops the oldest messages of a dialog beyond the cap, so counts only cover messages that can
+  // still be deleted
+  private void trim(String dialog_id, Dialog dialog)
+  {
+    Iterator<Map.Entry<String, Long>> entries = dialog.messages.entrySet().iterator();
+    while (dialog.messages.size() > maxMessagesPerDialog && entries.hasNext())
+    {
+      Map.Entry<String, Long> entry = entries.next();
+      String message_id = entry.getKey();
+      entries.remove();
+      messagesByArrival.remove(entry.getValue());
+      countOfmessage--;
+      if (store != null)
+      {
+        store.remove(STORE_KEY_PREFIX + dialog_id, message_id, dialog.messages.size());
+      }
+    }
+  }
+
+  private void index(Dialog dialog, RNPushNotificationMessage message)
+  {
+    long sequence = nextSequence++;
+    Long replaced = dialog.messages.put(message.message_id, sequence);
+    if (replaced != null)
+    {
+      messagesByArrival.remove(replaced);
+    }
+    messagesByArrival.put(sequence, message);
+  }
+
+  private void persist(String dialog_id, RNPushNotificationMessage message)
+  {
+    if (store != null)
+    {
+      store.append(STORE_KEY_PREFIX + dialog_id, message);
+    }
+  }
+
 }
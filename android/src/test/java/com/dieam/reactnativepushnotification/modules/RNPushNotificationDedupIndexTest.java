@@ -0,0 +1,201 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RNPushNotificationDedupIndexTest {
+    private static final long TTL = 100L;
+
+    private final FakeClock clock = new FakeClock();
+
+    private static class FakeClock implements RNPushNotificationDedupIndex.Clock {
+        // 0 marks a removed entry in the index, so time starts later
+        long time = 1000L;
+
+        @Override
+        public long now() {
+            return time;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        clock.time = 1000L;
+    }
+
+    @Test
+    public void rejectsDuplicates() {
+        RNPushNotificationDedupIndex index = new RNPushNotificationDedupIndex(8, TTL, clock);
+
+        assertTrue(index.add("a"));
+        assertFalse(index.add("a"));
+        assertTrue(index.contains("a"));
+        assertFalse(index.contains("b"));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void countsOnlyTheDecision() {
+        RNPushNotificationDedupIndex index = new RNPushNotificationDedupIndex(8, TTL, clock);
+
+        // What the helper does for every message: a lookup, then the add
+        assertFalse(index.contains("a"));
+        assertTrue(index.add("a"));
+        assertTrue(index.contains("a"));
+        assertFalse(index.add("a"));
+        index.restore("b");
+
+        assertEquals(1, index.getMisses());
+        assertEquals(1, index.getHits());
+    }
+
+    @Test
+    public void keepsTheLatestIdsAcrossWrapAround() {
+        RNPushNotificationDedupIndex index = new RNPushNotificationDedupIndex(4, TTL, clock);
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(index.add("id-" + i));
+        }
+
+        for (int i = 0; i < 6; i++) {
+            assertFalse(index.contains("id-" + i));
+        }
+        for (int i = 6; i < 10; i++) {
+            assertTrue(index.contains("id-" + i));
+        }
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    public void evictsTheOldestWhenFull() {
+        RNPushNotificationDedupIndex index = new RNPushNotificationDedupIndex(3, TTL, clock);
+
+        index.add("a");
+        index.add("b");
+        index.add("c");
+        index.add("d");
+
+        assertFalse(index.contains("a"));
+        assertTrue(index.contains("b"));
+        assertTrue(index.contains("c"));
+        assertTrue(index.contains("d"));
+        assertTrue(index.add("a"));
+    }
+
+    @Test
+    public void evictionSkipsRemovedEntries() {
+        RNPushNotificationDedupIndex index = new RNPushNotificationDedupIndex(3, TTL, clock);
+
+        index.add("a");
+        index.add("b");
+        index.add("c");
+        index.remove("b");
+        index.add("d");
+
+        assertEquals(2, index.size());
+        assertFalse(index.contains("a"));
+        assertFalse(index.contains("b"));
+        assertTrue(index.contains("c"));
+        assertTrue(index.contains("d"));
+    }
+
+    @Test
+    public void expiresIdsAfterTheTtl() {
+        RNPushNotificationDedupIndex index = new RNPushNotificationDedupIndex(8, TTL, clock);
+
+        index.add("a");
+        clock.time += 50;
+        index.add("b");
+
+        clock.time += TTL - 49;
+        assertFalse(index.contains("a"));
+        assertTrue(index.contains("b"));
+        assertEquals(1, index.size());
+
+        clock.time += 50;
+        assertFalse(index.contains("b"));
+        assertEquals(0, index.size());
+        assertTrue(index.add("a"));
+    }
+
+    @Test
+    public void findsCollidingIdsAfterARemove() {
+        RNPushNotificationDedupIndex index = new RNPushNotificationDedupIndex(8, TTL, clock);
+        List<String> colliding = collidingIds(index, index.homeOf("seed"), 4);
+
+        for (String id : colliding) {
+            index.add(id);
+        }
+        index.add("other");
+
+        index.remove(colliding.get(0));
+        assertFalse(index.contains(colliding.get(0)));
+        for (String id : colliding.subList(1, colliding.size())) {
+            assertTrue(index.contains(id));
+        }
+
+        index.remove(colliding.get(2));
+        assertTrue(index.contains(colliding.get(1)));
+        assertTrue(index.contains(colliding.get(3)));
+        assertTrue(index.contains("other"));
+        assertTrue(index.add(colliding.get(0)));
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    public void findsCollidingIdsWhoseProbeWrapsTheTable() {
+        RNPushNotificationDedupIndex index = new RNPushNotificationDedupIndex(8, TTL, clock);
+        // Capacity 8 gives a table of 16 slots, so these probe from the last slot to the first
+        List<String> colliding = collidingIds(index, 15, 3);
+        List<String> atStart = collidingIds(index, 0, 1);
+
+        for (String id : colliding) {
+            index.add(id);
+        }
+        index.add(atStart.get(0));
+
+        index.remove(colliding.get(1));
+        assertTrue(index.contains(colliding.get(0)));
+        assertTrue(index.contains(colliding.get(2)));
+        assertTrue(index.contains(atStart.get(0)));
+
+        index.remove(colliding.get(0));
+        assertTrue(index.contains(colliding.get(2)));
+        assertTrue(index.contains(atStart.get(0)));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    public void expiredCollidingIdsDoNotBreakLookups() {
+        RNPushNotificationDedupIndex index = new RNPushNotificationDedupIndex(8, TTL, clock);
+        List<String> colliding = collidingIds(index, index.homeOf("seed"), 3);
+
+        index.add(colliding.get(0));
+        clock.time += 60;
+        index.add(colliding.get(1));
+        index.add(colliding.get(2));
+
+        clock.time += 50;
+        assertFalse(index.contains(colliding.get(0)));
+        assertTrue(index.contains(colliding.get(1)));
+        assertTrue(index.contains(colliding.get(2)));
+    }
+
+    private static List<String> collidingIds(RNPushNotificationDedupIndex index, int home, int count) {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; ids.size() < count; i++) {
+            String id = "message-" + i;
+            if (index.homeOf(id) == home) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+}
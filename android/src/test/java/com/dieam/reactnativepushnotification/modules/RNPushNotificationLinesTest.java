@@ -0,0 +1,79 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class RNPushNotificationLinesTest {
+    private static final int MAX_LINES = 3;
+
+    @Test
+    public void retainsTheNewestLinesAndCountsAll() {
+        RNPushNotificationLines lines = RNPushNotificationLines.EMPTY;
+        for (int i = 0; i < 100; i++) {
+            lines = lines.append(line("m-" + i, "text"), MAX_LINES);
+            assertEquals(Math.min(i + 1, MAX_LINES), lines.size());
+            assertEquals(i + 1, lines.total());
+            assertNewest(lines, i);
+        }
+    }
+
+    @Test
+    public void snapshotsStayUnchangedWhenTheChainIsCopied() {
+        RNPushNotificationLines lines = RNPushNotificationLines.EMPTY;
+        for (int i = 0; i < 2 * MAX_LINES; i++) {
+            lines = lines.append(line("m-" + i, "text"), MAX_LINES);
+        }
+        RNPushNotificationLines snapshot = lines;
+        for (int i = 2 * MAX_LINES; i < 10 * MAX_LINES; i++) {
+            lines = lines.append(line("m-" + i, "text"), MAX_LINES);
+        }
+
+        assertNewest(snapshot, 2 * MAX_LINES - 1);
+        assertNewest(lines, 10 * MAX_LINES - 1);
+    }
+
+    @Test
+    public void replacesOnlyRetainedLines() {
+        RNPushNotificationLines lines = RNPushNotificationLines.EMPTY;
+        for (int i = 0; i < 5; i++) {
+            lines = lines.append(line("m-" + i, "text"), MAX_LINES);
+        }
+
+        assertSame(lines, lines.replace(line("m-1", "edited")));
+
+        RNPushNotificationLines replaced = lines.replace(line("m-3", "edited"));
+        RNPushNotificationLines.Line[] array = replaced.toArray();
+        assertEquals(MAX_LINES, replaced.size());
+        assertEquals(5, replaced.total());
+        assertEquals("edited", array[1].message);
+        assertEquals("m-4", array[2].message_id);
+
+        // Appending after a replace keeps the count and the order
+        replaced = replaced.append(line("m-5", "text"), MAX_LINES);
+        assertEquals(6, replaced.total());
+        assertEquals("m-3", replaced.toArray()[0].message_id);
+    }
+
+    @Test
+    public void startsFromTheDroppedCount() {
+        RNPushNotificationLines lines = RNPushNotificationLines.dropped(7);
+        lines = lines.append(line("m-0", "text"), MAX_LINES);
+
+        assertEquals(1, lines.size());
+        assertEquals(8, lines.total());
+        assertSame(RNPushNotificationLines.EMPTY, RNPushNotificationLines.dropped(0));
+    }
+
+    private static void assertNewest(RNPushNotificationLines lines, int newest) {
+        RNPushNotificationLines.Line[] array = lines.toArray();
+        for (int i = 0; i < array.length; i++) {
+            assertEquals("m-" + (newest - array.length + 1 + i), array[i].message_id);
+        }
+    }
+
+    private static RNPushNotificationLines.Line line(String messageId, String message) {
+        return new RNPushNotificationLines.Line("sender-id", "sender", messageId, message);
+    }
+}
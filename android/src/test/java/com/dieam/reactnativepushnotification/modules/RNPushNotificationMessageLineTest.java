@@ -0,0 +1,308 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Stress tests of the striped message lines. Notification IDs are spread over all 16 lock
+ * stripes, with several notifications per stripe, so both contended and independent updates run.
+ */
+public class RNPushNotificationMessageLineTest {
+    private static final int THREADS = 8;
+    private static final int NOTIFICATIONS = 64;
+    private static final int LINES_PER_THREAD = 400;
+
+    @Before
+    public void setUp() {
+        RNPushNotificationMessageLine.receivedMessagesIds.setClock(new RNPushNotificationDedupIndex.Clock() {
+            @Override
+            public long now() {
+                return 1000L;
+            }
+        });
+        RNPushNotificationMessageLine.receivedMessagesIds.clear();
+        RNPushNotificationMessageLine.clearAll();
+        // Every line is retained unless a test caps them
+        RNPushNotificationMessageLine.setMaxLines(Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void concurrentAddsLoseNoLine() throws Exception {
+        runConcurrently(THREADS, new Task() {
+            @Override
+            public void run(int thread) {
+                for (int i = 0; i < LINES_PER_THREAD; i++) {
+                    String messageId = "add-" + thread + "-" + i;
+                    assertNotNull(RNPushNotificationMessageLine.addLineToNotification(i % NOTIFICATIONS, line(messageId, "text")));
+                }
+            }
+        });
+
+        int total = 0;
+        for (int notificationID = 0; notificationID < NOTIFICATIONS; notificationID++) {
+            RNPushNotificationLines lines = RNPushNotificationMessageLine.getAllMessage(notificationID);
+            assertConsistent(lines);
+            total += lines.size();
+        }
+        assertEquals(THREADS * LINES_PER_THREAD, total);
+    }
+
+    @Test
+    public void racingDuplicatesAreAddedOnce() throws Exception {
+        final AtomicInteger added = new AtomicInteger();
+
+        runConcurrently(THREADS, new Task() {
+            @Override
+            public void run(int thread) {
+                for (int i = 0; i < LINES_PER_THREAD; i++) {
+                    // Every thread adds the same messages
+                    if (RNPushNotificationMessageLine.addLineToNotification(i % NOTIFICATIONS, line("dup-" + i, "text")) != null) {
+                        added.incrementAndGet();
+                    }
+                }
+            }
+        });
+
+        assertEquals(LINES_PER_THREAD, added.get());
+        Set<String> messageIds = new HashSet<>();
+        for (int notificationID = 0; notificationID < NOTIFICATIONS; notificationID++) {
+            for (RNPushNotificationLines.Line line : RNPushNotificationMessageLine.getAllMessage(notificationID)) {
+                assertTrue("duplicate line " + line.message_id, messageIds.add(line.message_id));
+            }
+        }
+        assertEquals(LINES_PER_THREAD, messageIds.size());
+    }
+
+    @Test
+    public void replacesAreNotLostToConcurrentAdds() throws Exception {
+        for (int notificationID = 0; notificationID < NOTIFICATIONS; notificationID++) {
+            RNPushNotificationMessageLine.addLineToNotification(notificationID, line("first-" + notificationID, "original"));
+        }
+
+        runConcurrently(THREADS, new Task() {
+            @Override
+            public void run(int thread) {
+                for (int i = 0; i < LINES_PER_THREAD; i++) {
+                    int notificationID = (i + thread) % NOTIFICATIONS;
+                    if (thread % 2 == 0) {
+                        RNPushNotificationMessageLine.addLineToNotification(notificationID, line("more-" + thread + "-" + i, "text"));
+                    } else {
+                        assertTrue(RNPushNotificationMessageLine.replaceLine(notificationID, line("first-" + notificationID, "edited")));
+                    }
+                }
+            }
+        });
+
+        int total = 0;
+        for (int notificationID = 0; notificationID < NOTIFICATIONS; notificationID++) {
+            RNPushNotificationLines lines = RNPushNotificationMessageLine.getAllMessage(notificationID);
+            assertConsistent(lines);
+            RNPushNotificationLines.Line first = lines.toArray()[0];
+            assertEquals("first-" + notificationID, first.message_id);
+            assertEquals("edited", first.message);
+            total += lines.size();
+        }
+        assertEquals(NOTIFICATIONS + (THREADS / 2) * LINES_PER_THREAD, total);
+    }
+
+    @Test
+    public void clearingANotificationLeavesItsStripeNeighboursIntact() throws Exception {
+        // Notifications n and n + 16 share a lock stripe
+        runConcurrently(THREADS, new Task() {
+            @Override
+            public void run(int thread) {
+                for (int i = 0; i < LINES_PER_THREAD; i++) {
+                    int notificationID = (i % 16) + (thread % 2 == 0 ? 0 : 16) + 32 * (thread / 2);
+                    if (thread % 2 == 0) {
+                        RNPushNotificationMessageLine.addLineToNotification(notificationID, line("kept-" + thread + "-" + i, "text"));
+                    } else {
+                        RNPushNotificationMessageLine.addLineToNotification(notificationID, line("cleared-" + thread + "-" + i, "text"));
+                        RNPushNotificationMessageLine.clear(notificationID);
+                    }
+                }
+            }
+        });
+
+        int kept = 0;
+        for (int thread = 0; thread < THREADS; thread++) {
+            for (int stripe = 0; stripe < 16; stripe++) {
+                int notificationID = stripe + (thread % 2 == 0 ? 0 : 16) + 32 * (thread / 2);
+                RNPushNotificationLines lines = RNPushNotificationMessageLine.getAllMessage(notificationID);
+                if (thread % 2 == 0) {
+                    kept += lines.size();
+                } else {
+                    assertTrue(lines.isEmpty());
+                }
+            }
+        }
+        assertEquals((THREADS / 2) * LINES_PER_THREAD, kept);
+    }
+
+    @Test
+    public void readersSeeConsistentSnapshots() throws Exception {
+        final int notificationID = 7;
+        final int writers = THREADS / 2;
+        final AtomicBoolean writing = new AtomicBoolean(true);
+        final ConcurrentLinkedQueue<String> failures = new ConcurrentLinkedQueue<>();
+        final AtomicInteger writersLeft = new AtomicInteger(writers);
+
+        runConcurrently(THREADS, new Task() {
+            @Override
+            public void run(int thread) {
+                if (thread < writers) {
+                    for (int i = 0; i < LINES_PER_THREAD; i++) {
+                        RNPushNotificationMessageLine.addLineToNotification(notificationID, line("w" + thread + "-" + i, "text"));
+                        if (i % 10 == 0) {
+                            RNPushNotificationMessageLine.replaceLine(notificationID, line("w" + thread + "-" + (i / 2), "edited"));
+                        }
+                    }
+                    if (writersLeft.decrementAndGet() == 0) {
+                        writing.set(false);
+                    }
+                    return;
+                }
+                while (writing.get()) {
+                    RNPushNotificationLines snapshot = RNPushNotificationMessageLine.getAllMessage(notificationID);
+                    RNPushNotificationLines.Line[] before = snapshot.toArray();
+                    String failure = checkSnapshot(snapshot);
+                    if (failure != null) {
+                        failures.add(failure);
+                        return;
+                    }
+                    // Later updates never change a snapshot that was handed out
+                    RNPushNotificationLines.Line[] after = snapshot.toArray();
+                    for (int i = 0; i < before.length; i++) {
+                        if (before[i] != after[i]) {
+                            failures.add("snapshot changed at " + i);
+                            return;
+                        }
+                    }
+                }
+            }
+        });
+
+        assertTrue(failures.toString(), failures.isEmpty());
+        RNPushNotificationLines lines = RNPushNotificationMessageLine.getAllMessage(notificationID);
+        assertConsistent(lines);
+        assertEquals(writers * LINES_PER_THREAD, lines.size());
+    }
+
+    @Test
+    public void cappedLinesKeepCountingConcurrentAdds() throws Exception {
+        final int maxLines = 10;
+        RNPushNotificationMessageLine.setMaxLines(maxLines);
+
+        runConcurrently(THREADS, new Task() {
+            @Override
+            public void run(int thread) {
+                for (int i = 0; i < LINES_PER_THREAD; i++) {
+                    RNPushNotificationMessageLine.addLineToNotification(i % NOTIFICATIONS, line("capped-" + thread + "-" + i, "text"));
+                }
+            }
+        });
+
+        int total = 0;
+        for (int notificationID = 0; notificationID < NOTIFICATIONS; notificationID++) {
+            RNPushNotificationLines lines = RNPushNotificationMessageLine.getAllMessage(notificationID);
+            assertConsistent(lines);
+            assertEquals(maxLines, lines.size());
+            total += lines.total();
+        }
+        assertEquals(THREADS * LINES_PER_THREAD, total);
+    }
+
+    private interface Task {
+        void run(int thread) throws Exception;
+    }
+
+    private static void runConcurrently(int threads, final Task task) throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        final ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<>();
+
+        for (int i = 0; i < threads; i++) {
+            final int thread = i;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        task.run(thread);
+                    } catch (Throwable e) {
+                        errors.add(e);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+
+        start.countDown();
+        if (!done.await(60, TimeUnit.SECONDS)) {
+            fail("stress threads did not finish");
+        }
+        if (!errors.isEmpty()) {
+            throw new AssertionError(errors.peek());
+        }
+    }
+
+    private static void assertConsistent(RNPushNotificationLines lines) {
+        String failure = checkSnapshot(lines);
+        assertFalse(failure, failure != null);
+    }
+
+    /**
+     * @return why the snapshot is inconsistent, or null: its size matches its lines, no message_id
+     * appears twice, and each writer's lines are in the order it added them
+     */
+    private static String checkSnapshot(RNPushNotificationLines lines) {
+        RNPushNotificationLines.Line[] array = lines.toArray();
+        if (array.length != lines.size()) {
+            return "size " + lines.size() + " but " + array.length + " lines";
+        }
+        int iterated = 0;
+        for (RNPushNotificationLines.Line line : lines) {
+            if (line != array[iterated++]) {
+                return "iteration differs from toArray at " + (iterated - 1);
+            }
+        }
+        Set<String> messageIds = new HashSet<>();
+        Map<String, Integer> lastIndexByWriter = new HashMap<>();
+        for (RNPushNotificationLines.Line line : array) {
+            if (line == null) {
+                return "null line";
+            }
+            if (!messageIds.add(line.message_id)) {
+                return "duplicate line " + line.message_id;
+            }
+            int separator = line.message_id.lastIndexOf('-');
+            String writer = line.message_id.substring(0, separator);
+            int index = Integer.parseInt(line.message_id.substring(separator + 1));
+            Integer last = lastIndexByWriter.put(writer, index);
+            if (last != null && last >= index) {
+                return "lines of " + writer + " out of order";
+            }
+        }
+        return null;
+    }
+
+    private static RNPushNotificationLines.Line line(String messageId, String message) {
+        return new RNPushNotificationLines.Line("sender-id", "sender", messageId, message);
+    }
+}
@@ -0,0 +1,91 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.EnumMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class RNPushNotificationTemplatesTest {
+    private CountingResolver resolver;
+    private RNPushNotificationTemplates templates;
+
+    static class CountingResolver implements RNPushNotificationTemplates.Resolver {
+        final EnumMap<NotificationChannelManager.CHANNELS, Integer> createdChannels =
+                new EnumMap<>(NotificationChannelManager.CHANNELS.class);
+        int iconLookups = 0;
+        int colorLookups = 0;
+
+        @Override
+        public String channelId(NotificationChannelManager.CHANNELS channel) {
+            Integer created = createdChannels.get(channel);
+            createdChannels.put(channel, created == null ? 1 : created + 1);
+            return "channel-" + channel.name();
+        }
+
+        @Override
+        public int defaultSmallIcon() {
+            iconLookups++;
+            return 42;
+        }
+
+        @Override
+        public int defaultColor() {
+            colorLookups++;
+            return 0xFF43A3CC;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        resolver = new CountingResolver();
+        templates = new RNPushNotificationTemplates(resolver);
+    }
+
+    @Test
+    public void legacyChannelPathsCreateNoChannel() {
+        // The call, group, notification centre and summary paths only read the icon and color
+        for (int i = 0; i < 100; i++) {
+            assertEquals(42, templates.get(NotificationChannelManager.CHANNELS.CALLS).smallIcon);
+            assertEquals(0xFF43A3CC, templates.get(NotificationChannelManager.CHANNELS.IN_APP_GROUP).color);
+            assertEquals(42, templates.get(NotificationChannelManager.CHANNELS.PUSH_MESSAGES).smallIcon);
+        }
+
+        assertEquals(0, resolver.createdChannels.size());
+    }
+
+    @Test
+    public void resolvesTheChannelOnceWhenPostedTo() {
+        RNPushNotificationTemplates.Template template = templates.get(NotificationChannelManager.CHANNELS.IN_APP_MESSAGES);
+        for (int i = 0; i < 100; i++) {
+            assertEquals("channel-IN_APP_MESSAGES", templates.get(NotificationChannelManager.CHANNELS.IN_APP_MESSAGES).channelId());
+        }
+
+        assertSame(template, templates.get(NotificationChannelManager.CHANNELS.IN_APP_MESSAGES));
+        assertEquals(1, resolver.createdChannels.size());
+        assertEquals(Integer.valueOf(1), resolver.createdChannels.get(NotificationChannelManager.CHANNELS.IN_APP_MESSAGES));
+    }
+
+    @Test
+    public void resolvesEachTemplateOnce() {
+        for (int i = 0; i < 100; i++) {
+            for (NotificationChannelManager.CHANNELS channel : NotificationChannelManager.CHANNELS.values()) {
+                templates.get(channel);
+            }
+        }
+
+        assertEquals(NotificationChannelManager.CHANNELS.values().length, resolver.iconLookups);
+        assertEquals(NotificationChannelManager.CHANNELS.values().length, resolver.colorLookups);
+    }
+
+    @Test
+    public void invalidateResolvesTheChannelAgain() {
+        templates.get(NotificationChannelManager.CHANNELS.PUSH_MESSAGES).channelId();
+        templates.invalidate();
+        templates.get(NotificationChannelManager.CHANNELS.PUSH_MESSAGES).channelId();
+
+        assertEquals(Integer.valueOf(2), resolver.createdChannels.get(NotificationChannelManager.CHANNELS.PUSH_MESSAGES));
+    }
+}
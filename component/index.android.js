@@ -10,9 +10,19 @@ var RNPushNotification = NativeModules.RNPushNotification;
 var _notifHandlers = new Map();
 
 var DEVICE_NOTIF_EVENT = 'remoteNotificationReceived';
+var DEVICE_NOTIF_BATCH_EVENT = 'remoteNotificationsReceivedBatch';
 var NOTIF_REGISTER_EVENT = 'remoteNotificationsRegistered';
 var REMOTE_FETCH_EVENT = 'remoteFetch';
 
+// Events carry the notification as a map, or as a dataJSON string when the
+// legacy_data_json meta-data is set
+function parseEventData(eventData) {
+	if (eventData && typeof eventData.dataJSON === 'string') {
+		return JSON.parse(eventData.dataJSON);
+	}
+	return eventData;
+}
+
 var NotificationsComponent = function() {
 
 };
@@ -20,10 +30,10 @@ var NotificationsComponent = function() {
 NotificationsComponent.prototype.getInitialNotification = function () {
     return RNPushNotification.getInitialNotification()
         .then(function (notification) {
-            if (notification && notification.dataJSON) {
-                return JSON.parse(notification.dataJSON);
+            if (!notification || Object.keys(notification).length === 0) {
+                return null;
             }
-            return null;
+            return parseEventData(notification);
         });
 };
 
@@ -76,6 +86,10 @@ NotificationsComponent.prototype.scheduleLocalNotification = function(details: O
 	RNPushNotification.scheduleLocalNotification(details);
 };
 
+NotificationsComponent.prototype.scheduleLocalNotifications = function(details: Array) {
+	return RNPushNotification.scheduleLocalNotifications(details);
+};
+
 NotificationsComponent.prototype.setApplicationIconBadgeNumber = function(number: number) {
        if (!RNPushNotification.setApplicationIconBadgeNumber) {
                return;
@@ -94,13 +108,28 @@ NotificationsComponent.prototype.checkPermissions = function(callback: Function)
 NotificationsComponent.prototype.addEventListener = function(type: string, handler: Function) {
 	var listener;
 	if (type === 'notification') {
-		listener =  DeviceEventEmitter.addListener(
+		var singleListener = DeviceEventEmitter.addListener(
 			DEVICE_NOTIF_EVENT,
 			function(notifData) {
-				var data = JSON.parse(notifData.dataJSON);
+				var data = parseEventData(notifData);
 				handler(data);
 			}
 		);
+		// Sent instead of single events when event_batch_window is set in the manifest
+		var batchListener = DeviceEventEmitter.addListener(
+			DEVICE_NOTIF_BATCH_EVENT,
+			function(notifDataList) {
+				notifDataList.forEach(function(notifData) {
+					handler(parseEventData(notifData));
+				});
+			}
+		);
+		listener = {
+			remove: function() {
+				singleListener.remove();
+				batchListener.remove();
+			}
+		};
 	} else if (type === 'register') {
 		listener = DeviceEventEmitter.addListener(
 			NOTIF_REGISTER_EVENT,
@@ -112,7 +141,7 @@ NotificationsComponent.prototype.addEventListener = function(type: string, handl
 		listener = DeviceEventEmitter.addListener(
 			REMOTE_FETCH_EVENT,
 			function(notifData) {
-				var notificationData = JSON.parse(notifData.dataJSON)
+				var notificationData = parseEventData(notifData)
 				handler(notificationData);
 			}
 		);
@@ -154,6 +183,18 @@ NotificationsComponent.prototype.updateMessageNotificationSettings = function(op
 	return RNPushNotification.updateMessageNotificationSettings(options);
 }
 
+NotificationsComponent.prototype.getDedupStats = function() {
+	return RNPushNotification.getDedupStats();
+}
+
+NotificationsComponent.prototype.getResourceCacheStats = function() {
+	return RNPushNotification.getResourceCacheStats();
+}
+
+NotificationsComponent.prototype.getWarmUpStats = function() {
+	return RNPushNotification.getWarmUpStats();
+}
+
 module.exports = {
 	state: false,
 	component: new NotificationsComponent()
@@ -32,6 +32,7 @@ var Notifications = {
 		START_CALL_TASK_KEY: 'START_CALL_TASK_KEY',
 		END_CALL_TASK_KEY: 'END_CALL_TASK_KEY',
 		NOTIFY_TASK_KEY: 'NOTIFY_TASK_KEY',
+		NOTIFY_BATCH_TASK_KEY: 'NOTIFY_BATCH_TASK_KEY',
 		MARK_AS_READ_TASK_KEY: 'MARK_AS_READ_TASK_KEY',
 		REPLY_TASK_KEY: 'REPLY_TASK_KEY'
 	},
@@ -192,6 +193,19 @@ Notifications.registerBackgroundTask = function(taskName, taskFunction) {
   if (Platform.OS == 'android') {
     console.log('[Notifications][registerBackgroundTask]', taskName, taskFunction)
     AppRegistry.registerHeadlessTask(taskName, taskFunction)
+    // With notify_task_batch_size set, queued notify tasks arrive together and run one after another
+    if (taskName === this.JS_BACKGROUND_TASKS_KEYS.NOTIFY_TASK_KEY) {
+      AppRegistry.registerHeadlessTask(this.JS_BACKGROUND_TASKS_KEYS.NOTIFY_BATCH_TASK_KEY, function() {
+        var task = taskFunction();
+        return function(data) {
+          return data.notifications.reduce(function(previous, notification) {
+            return previous.then(function() {
+              return task(notification);
+            });
+          }, Promise.resolve());
+        };
+      });
+    }
   }
 }
 
@@ -238,7 +252,71 @@ Notifications.localNotificationSchedule = function(details: Object) {
 	}
 };
 
+/**
+ * Schedules many local notifications in one call
+ * @param {Array}		notifications - list of details as accepted by localNotificationSchedule
+ * @return {Promise}	resolves with one { id, success, error } result per notification, invalid
+ *						details are rejected in their result and the others are still scheduled
+ */
+Notifications.localNotificationScheduleBatch = function(notifications: Array) {
+	const results = notifications.map(function(details) {
+		const error = this._validateScheduleDetails(details);
+		return error ? { id: details && details.id !== undefined ? details.id : null, success: false, error: error } : null;
+	}, this);
+
+	if ( Platform.OS === 'android' ) {
+		const indexes = [];
+		const batch = [];
+		notifications.forEach(function(details, index) {
+			if (results[index]) {
+				return;
+			}
+			const androidDetails = { ...details };
+			androidDetails.fireDate = details.date.getTime();
+			delete androidDetails.date;
+			// ignore iOS only repeatType
+			if (['year', 'month'].includes(androidDetails.repeatType)) {
+				delete androidDetails.repeatType;
+			}
+			indexes.push(index);
+			batch.push(androidDetails);
+		});
+		if (batch.length === 0) {
+			return Promise.resolve(results);
+		}
+		return this.handler.scheduleLocalNotifications(batch).then(function(scheduled) {
+			scheduled.forEach(function(result, position) {
+				results[indexes[position]] = result;
+			});
+			return results;
+		});
+	}
+
+	notifications.forEach(function(details, index) {
+		if (results[index]) {
+			return;
+		}
+		try {
+			this.localNotificationSchedule(details);
+			results[index] = { id: details.id, success: true };
+		} catch (e) {
+			results[index] = { id: details.id, success: false, error: e.message };
+		}
+	}, this);
+	return Promise.resolve(results);
+};
+
 /* Internal Functions */
+Notifications._validateScheduleDetails = function(details: Object) {
+	if ( !details || typeof details !== 'object' ) {
+		return 'Notification details must be an object';
+	}
+	if ( !(details.date instanceof Date) || isNaN(details.date.getTime()) ) {
+		return 'Notification date must be a valid Date';
+	}
+	return null;
+};
+
 Notifications._onRegister = function(token: String) {
 	if ( this.onRegister !== false ) {
 		this.onRegister({
@@ -406,4 +484,28 @@ Notifications.updateMessageNotificationSettings = function() {
 	return Promise.resolve()
 }
 
+Notifications.getDedupStats = function() {
+	// Only available for Android
+	if (Platform.OS === 'android') {
+		return this.callNative('getDedupStats', arguments)
+	}
+	return Promise.resolve({})
+}
+
+Notifications.getResourceCacheStats = function() {
+	// Only available for Android
+	if (Platform.OS === 'android') {
+		return this.callNative('getResourceCacheStats', arguments)
+	}
+	return Promise.resolve({})
+}
+
+Notifications.getWarmUpStats = function() {
+	// Only available for Android
+	if (Platform.OS === 'android') {
+		return this.callNative('getWarmUpStats', arguments)
+	}
+	return Promise.resolve({})
+}
+
 module.exports = Notifications;